@@ -0,0 +1,56 @@
+package com.testvagrant.gradle.benchmark;
+
+import gherkin.AstBuilder;
+import gherkin.Parser;
+import gherkin.TokenMatcher;
+import gherkin.ast.GherkinDocument;
+import gherkin.pickles.Compiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles the parsed documents of the corpus into pickles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class CompilerBenchmark {
+
+    private final List<GherkinDocument> documents = new ArrayList<GherkinDocument>();
+    private final List<String> paths = new ArrayList<String>();
+    private final Compiler compiler = new Compiler();
+
+    @Setup(Level.Trial)
+    public void parse(final Corpus corpus) {
+        final Parser<GherkinDocument> parser = new Parser<GherkinDocument>(new AstBuilder());
+        final TokenMatcher matcher = new TokenMatcher();
+        for (int i = 0; i < corpus.sources.size(); i++) {
+            documents.add(parser.parse(corpus.sources.get(i), matcher));
+            paths.add(corpus.files.get(i).getPath());
+        }
+    }
+
+    @Benchmark
+    public void compile(final Blackhole blackhole) {
+        for (int i = 0; i < documents.size(); i++) {
+            blackhole.consume(compiler.compile(documents.get(i), paths.get(i)));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.testvagrant.gradle.benchmark;
+
+import com.testvagrant.gradle.generate.corpus.CorpusGenerator;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A feature tree written to a temporary directory once per trial, in three sizes, by the
+ * {@link CorpusGenerator} with its default seed. The content is the same on every run, so
+ * results of different runs can be compared.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+    static final String TAGS = "@tag0,@tag1";
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    File directory;
+    final List<File> files = new ArrayList<File>();
+    final List<String> sources = new ArrayList<String>();
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        final int fileCount;
+        final int scenariosPerFile;
+        if ("small".equals(size)) {
+            fileCount = 10;
+            scenariosPerFile = 10;
+        } else if ("medium".equals(size)) {
+            fileCount = 200;
+            scenariosPerFile = 20;
+        } else {
+            fileCount = 2000;
+            scenariosPerFile = 30;
+        }
+        directory = Files.createTempDirectory("cuke-corpus-" + size).toFile();
+        final CorpusGenerator generator = new CorpusGenerator()
+                .setFileCount(fileCount)
+                .setScenariosPerFile(scenariosPerFile)
+                .setLanguages(Arrays.asList("fr", "de"), 0.1);
+        files.addAll(generator.generate(directory));
+        for (int i = 0; i < fileCount; i++) {
+            sources.add(generator.feature(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+}
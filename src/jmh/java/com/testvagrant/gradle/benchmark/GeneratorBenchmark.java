@@ -0,0 +1,72 @@
+package com.testvagrant.gradle.benchmark;
+
+import com.testvagrant.gradle.CukePluginExtension;
+import com.testvagrant.gradle.generate.CucumberItGenerator;
+import com.testvagrant.gradle.generate.OverriddenCucumberOptionsParameters;
+import com.testvagrant.gradle.generate.OverriddenRerunOptionsParameters;
+import com.testvagrant.gradle.generate.name.ClassNamingSchemeFactory;
+import com.testvagrant.gradle.generate.name.OneUpCounter;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the runners of the corpus from scratch, with the default settings and without the
+ * parse cache: discovery, parsing, planning, rendering and writing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+    private CukePluginExtension extension;
+    private File outputDirectory;
+
+    @Setup(Level.Trial)
+    public void configure(final Corpus corpus) throws IOException {
+        extension = new CukePluginExtension();
+        extension.setFeaturesDirectory(corpus.directory.getPath());
+        extension.setTags(Corpus.TAGS);
+        outputDirectory = Files.createTempDirectory("cuke-runners").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        FileUtils.deleteDirectory(outputDirectory);
+    }
+
+    @Benchmark
+    public long generate() {
+        final OverriddenCucumberOptionsParameters parameters =
+                new OverriddenCucumberOptionsParameters()
+                        .setTags(extension.getTags())
+                        .setGlue(extension.getGlue())
+                        .setStrict(extension.isStrict())
+                        .setFormat(extension.getFormat())
+                        .setMonochrome(extension.isMonochrome());
+        final CucumberItGenerator generator = new CucumberItGenerator(extension, parameters,
+                new ClassNamingSchemeFactory(new OneUpCounter())
+                        .create(extension.getNamingScheme(), extension.getNamingPattern()),
+                new OverriddenRerunOptionsParameters());
+        generator.generateCucumberItFiles(outputDirectory);
+        return generator.getMetrics().getBytesWritten();
+    }
+}
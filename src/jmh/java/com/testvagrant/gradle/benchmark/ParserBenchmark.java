@@ -0,0 +1,40 @@
+package com.testvagrant.gradle.benchmark;
+
+import gherkin.AstBuilder;
+import gherkin.Parser;
+import gherkin.TokenMatcher;
+import gherkin.ast.GherkinDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the corpus into Gherkin documents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    private final Parser<GherkinDocument> parser = new Parser<GherkinDocument>(new AstBuilder());
+    private final TokenMatcher matcher = new TokenMatcher();
+
+    @Benchmark
+    public void parse(final Corpus corpus, final Blackhole blackhole) {
+        for (final String source : corpus.sources) {
+            blackhole.consume(parser.parse(source, matcher));
+        }
+    }
+}
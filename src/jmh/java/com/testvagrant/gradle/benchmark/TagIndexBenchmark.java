@@ -0,0 +1,39 @@
+package com.testvagrant.gradle.benchmark;
+
+import com.testvagrant.gradle.generate.index.FeatureFileParser;
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the feature files of the corpus into summaries, without the parse cache, and looks up
+ * the scenarios of each tag, as the generator does before planning runners.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TagIndexBenchmark {
+
+    @Benchmark
+    public void index(final Corpus corpus, final Blackhole blackhole) {
+        final FeatureFileParser parser = new FeatureFileParser(corpus.directory.getPath());
+        final FeatureIndex index = new FeatureIndex();
+        for (final File file : corpus.files) {
+            index.add(parser.parse(file));
+        }
+        for (final String tag : Corpus.TAGS.split(",")) {
+            blackhole.consume(index.getScenariosTagged(tag));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.testvagrant.gradle.benchmark;
+
+import gherkin.Token;
+import gherkin.TokenMatcher;
+import gherkin.TokenScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the tokens of the corpus, each against the matchers in turn until one matches, the
+ * way the parser tries them for a line inside a scenario.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class TokenMatcherBenchmark {
+
+    private final List<List<Token>> documents = new ArrayList<List<Token>>();
+    private final TokenMatcher matcher = new TokenMatcher();
+
+    @Setup(Level.Trial)
+    public void scan(final Corpus corpus) {
+        for (final String source : corpus.sources) {
+            final List<Token> tokens = new ArrayList<Token>();
+            final TokenScanner scanner = new TokenScanner(source);
+            Token token;
+            do {
+                token = scanner.read();
+                tokens.add(token);
+            } while (!token.isEOF());
+            documents.add(tokens);
+        }
+    }
+
+    @Benchmark
+    public int match() {
+        int matched = 0;
+        for (final List<Token> tokens : documents) {
+            matcher.reset();
+            for (final Token token : tokens) {
+                if (matcher.match_EOF(token)
+                        || matcher.match_Comment(token)
+                        || matcher.match_TagLine(token)
+                        || matcher.match_FeatureLine(token)
+                        || matcher.match_BackgroundLine(token)
+                        || matcher.match_ScenarioLine(token)
+                        || matcher.match_ScenarioOutlineLine(token)
+                        || matcher.match_ExamplesLine(token)
+                        || matcher.match_StepLine(token)
+                        || matcher.match_DocStringSeparator(token)
+                        || matcher.match_TableRow(token)
+                        || matcher.match_Language(token)
+                        || matcher.match_Empty(token)
+                        || matcher.match_Other(token)) {
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+}
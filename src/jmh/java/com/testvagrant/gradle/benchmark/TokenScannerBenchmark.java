@@ -0,0 +1,55 @@
+package com.testvagrant.gradle.benchmark;
+
+import gherkin.MappedTokenScanner;
+import gherkin.Token;
+import gherkin.TokenScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every line of the corpus into tokens, without matching them, from the sources in memory
+ * and from the files on disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TokenScannerBenchmark {
+
+    @Benchmark
+    public void scan(final Corpus corpus, final Blackhole blackhole) {
+        for (final String source : corpus.sources) {
+            final TokenScanner scanner = new TokenScanner(source);
+            Token token;
+            do {
+                token = scanner.read();
+                blackhole.consume(token);
+            } while (!token.isEOF());
+        }
+    }
+
+    @Benchmark
+    public void scanFiles(final Corpus corpus, final Blackhole blackhole) throws IOException {
+        final Charset charset = Charset.forName("UTF-8");
+        for (final File file : corpus.files) {
+            final MappedTokenScanner scanner = new MappedTokenScanner(file, charset);
+            Token token;
+            do {
+                token = scanner.read();
+                blackhole.consume(token);
+            } while (!token.isEOF());
+        }
+    }
+}
@@ -1,12 +1,141 @@
 package com.testvagrant.gradle;
 
 
+import com.testvagrant.gradle.generate.CucumberItGenerator;
+import com.testvagrant.gradle.report.ConsolidateReportsTask;
+import org.gradle.api.Action;
 import org.gradle.api.Project;
 import org.gradle.api.Plugin;
+import org.gradle.api.Task;
+import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.testing.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 
 public class CukeGeneratorPlugin implements Plugin<Project> {
+
+    public static final String GENERATE_TASK_NAME = "generateCucumberRunners";
+    public static final String CONSOLIDATE_REPORTS_TASK_NAME = "consolidateCucumberReports";
+
     @Override
-    public void apply(Project target) {
-        target.getExtensions().create("cukeParallelPlugin", CukePluginExtension.class);
+    public void apply(final Project target) {
+        final CukePluginExtension extension =
+                target.getExtensions().create("cukeParallelPlugin", CukePluginExtension.class);
+
+        final TaskProvider<GenerateTask> generate = target.getTasks().register(
+                GENERATE_TASK_NAME, GenerateTask.class, new Action<GenerateTask>() {
+                    public void execute(final GenerateTask task) {
+                        task.setDescription("Generates the Cucumber runner classes.");
+                    }
+                });
+
+        final TaskProvider<ConsolidateReportsTask> consolidateReports = target.getTasks().register(
+                CONSOLIDATE_REPORTS_TASK_NAME, ConsolidateReportsTask.class,
+                new Action<ConsolidateReportsTask>() {
+                    public void execute(final ConsolidateReportsTask task) {
+                        task.setDescription("Builds the consolidated Cucumber reports of the"
+                                + " default run and each retry, and the merged report.");
+                        task.onlyIf(new Spec<Task>() {
+                            public boolean isSatisfiedBy(final Task t) {
+                                return extension.isConsolidateReportsAfterTest()
+                                        && (extension.isUseReRun() || extension.isMergeReports());
+                            }
+                        });
+                    }
+                });
+
+        target.getPlugins().withType(JavaPlugin.class, new Action<JavaPlugin>() {
+            public void execute(final JavaPlugin javaPlugin) {
+                addGeneratedSources(target, extension);
+                target.getTasks().named(JavaPlugin.COMPILE_TEST_JAVA_TASK_NAME).configure(
+                        new Action<Task>() {
+                            public void execute(final Task compileTestJava) {
+                                compileTestJava.dependsOn(generate);
+                            }
+                        });
+                // the build script has configured the extension and the test task by then
+                target.afterEvaluate(new Action<Project>() {
+                    public void execute(final Project project) {
+                        if (!extension.isSizeTestForks()) {
+                            return;
+                        }
+                        project.getTasks().named(JavaPlugin.TEST_TASK_NAME, Test.class).configure(
+                                new Action<Test>() {
+                                    public void execute(final Test test) {
+                                        new TestForkSizing(extension).configure(test);
+                                    }
+                                });
+                    }
+                });
+                target.getTasks().named(JavaPlugin.TEST_TASK_NAME).configure(new Action<Task>() {
+                    public void execute(final Task test) {
+                        // the reports are built once, after every test fork has finished
+                        test.finalizedBy(consolidateReports);
+                        if (test instanceof Test) {
+                            new RunnerOrdering(extension).configure((Test) test);
+                        }
+                        // every test run works through the whole queue again, and is not
+                        // aborted by a failure of the previous run
+                        test.doFirst(new Action<Task>() {
+                            public void execute(final Task t) {
+                                new File(t.getProject().getBuildDir(),
+                                        GenerateTask.WORK_QUEUE_CURSOR_FILE).delete();
+                                if (t instanceof Test) {
+                                    ((Test) t).systemProperty(
+                                            CucumberItGenerator.TEST_RUN_PROPERTY,
+                                            UUID.randomUUID().toString());
+                                }
+                                new File(t.getProject().file(extension.getCucumberOutputDir()),
+                                        CucumberItGenerator.ABORT_FILE).delete();
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Adds the output directory to the test sources, unless it is already inside one of their
+     * directories. Resolved when the sources are read, so the output directory may still be
+     * configured after the plugin is applied.
+     */
+    private static void addGeneratedSources(final Project target,
+                                            final CukePluginExtension extension) {
+        final SourceSetContainer sourceSets =
+                (SourceSetContainer) target.property("sourceSets");
+        final SourceDirectorySet testSources =
+                sourceSets.getByName(SourceSet.TEST_SOURCE_SET_NAME).getJava();
+        testSources.srcDir(new Callable<Object>() {
+            // reading the other source directories resolves this one again
+            private boolean resolving;
+
+            public synchronized Object call() {
+                if (resolving) {
+                    return Collections.emptyList();
+                }
+                resolving = true;
+                try {
+                    final File outputDirectory = target.file(extension.getOutputDirectory());
+                    for (final File srcDir : testSources.getSrcDirs()) {
+                        if (outputDirectory.getAbsolutePath().startsWith(
+                                srcDir.getAbsolutePath() + File.separator)) {
+                            return Collections.emptyList();
+                        }
+                    }
+                    return outputDirectory;
+                } finally {
+                    resolving = false;
+                }
+            }
+        });
     }
 }
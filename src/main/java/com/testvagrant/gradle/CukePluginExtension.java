@@ -12,7 +12,7 @@ public class CukePluginExtension {
     private String namingPattern = "Parallel{c}IT";
     private boolean filterFeaturesByTags = false;
     private boolean filterScenarioAndOutlineByLines = true;
-    private String outputDirectory = "${project.build.directory}/generated-test-sources/cucumber";
+    private String outputDirectory = "build/generated-test-sources/cucumber";
     private String glue = "steps";
     private String tags;
     private String format = "json";
@@ -20,6 +20,31 @@ public class CukePluginExtension {
     private boolean monochrome = false;
     private String cucumberOptions = "cucumber.options";
     private int retryCount = 0;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private int rendererThreads = Runtime.getRuntime().availableProcessors();
+    private int writerThreads = 2;
+    private int pipelineQueueCapacity = 256;
+    private boolean useParseCache = true;
+    private boolean incremental = false;
+    private int scenariosPerRunner = 1;
+    private int targetRunnerCount = 0;
+    private boolean balanceRunnersByDuration = false;
+    private int shardIndex = 0;
+    private int shardCount = 1;
+    private String shardDurationHistory;
+    private int rerunThreads = 0;
+    private boolean consolidateReportsAfterTest = true;
+    private boolean mergeReports = false;
+    private boolean workStealing = false;
+    private int workStealingRunners = 0;
+    private boolean failFast = false;
+    private String failFastTag = "";
+    private boolean threadedRunner = false;
+    private int runnerThreads = 0;
+    private boolean sizeTestForks = false;
+    private int forkMemoryMegabytes = 512;
+    private int maxRunnersPerFork = 0;
+    private boolean orderRunnersByDuration = false;
 
     public boolean isFilterScenarioAndOutlineByLines() {
         return filterScenarioAndOutlineByLines;
@@ -37,8 +62,11 @@ public class CukePluginExtension {
         this.retryCount = retryCount;
     }
 
+    /**
+     * Re-runs are always used when a retry count has been set.
+     */
     public boolean isUseReRun() {
-        return useReRun;
+        return useReRun || retryCount > 0;
     }
 
     public void setUseReRun(boolean useReRun) {
@@ -156,4 +184,260 @@ public class CukePluginExtension {
     public void setCucumberOptions(String cucumberOptions) {
         this.cucumberOptions = cucumberOptions;
     }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    public int getRendererThreads() {
+        return rendererThreads;
+    }
+
+    public void setRendererThreads(int rendererThreads) {
+        this.rendererThreads = rendererThreads;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
+    public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+    }
+
+    public boolean isUseParseCache() {
+        return useParseCache;
+    }
+
+    public void setUseParseCache(boolean useParseCache) {
+        this.useParseCache = useParseCache;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public int getScenariosPerRunner() {
+        return scenariosPerRunner;
+    }
+
+    public void setScenariosPerRunner(int scenariosPerRunner) {
+        this.scenariosPerRunner = scenariosPerRunner;
+    }
+
+    public int getTargetRunnerCount() {
+        return targetRunnerCount;
+    }
+
+    public void setTargetRunnerCount(int targetRunnerCount) {
+        this.targetRunnerCount = targetRunnerCount;
+    }
+
+    public boolean isBalanceRunnersByDuration() {
+        return balanceRunnersByDuration;
+    }
+
+    public void setBalanceRunnersByDuration(boolean balanceRunnersByDuration) {
+        this.balanceRunnersByDuration = balanceRunnersByDuration;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(int shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * A directory of Cucumber JSON reports that every node of a sharded run reads the same
+     * content from, such as reports fetched from a shared store. Shards are only balanced by
+     * duration when it is set; otherwise scenarios are hashed to shards.
+     */
+    public String getShardDurationHistory() {
+        return shardDurationHistory;
+    }
+
+    public void setShardDurationHistory(String shardDurationHistory) {
+        this.shardDurationHistory = shardDurationHistory;
+    }
+
+    /**
+     * The number of failed scenarios re-run at a time in a test JVM; 0 for one per processor of
+     * the test JVM, resolved when the tests run.
+     */
+    public int getRerunThreads() {
+        return rerunThreads;
+    }
+
+    public void setRerunThreads(int rerunThreads) {
+        this.rerunThreads = rerunThreads;
+    }
+
+    /**
+     * Whether the consolidated re-run reports are built once by a task the test task is
+     * finalized by, rather than by every re-runner class.
+     */
+    public boolean isConsolidateReportsAfterTest() {
+        return consolidateReportsAfterTest;
+    }
+
+    public void setConsolidateReportsAfterTest(boolean consolidateReportsAfterTest) {
+        this.consolidateReportsAfterTest = consolidateReportsAfterTest;
+    }
+
+    /**
+     * Whether the consolidation task also merges every JSON report under the Cucumber output
+     * directory into one, so stale reports of earlier test runs must be cleaned up first.
+     */
+    public boolean isMergeReports() {
+        return mergeReports;
+    }
+
+    public void setMergeReports(boolean mergeReports) {
+        this.mergeReports = mergeReports;
+    }
+
+    /**
+     * Whether the scenarios are put in a work queue that a few generic runners take batches of
+     * scenariosPerRunner from, instead of generating one runner per batch.
+     */
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    public void setWorkStealing(boolean workStealing) {
+        this.workStealing = workStealing;
+    }
+
+    /**
+     * The number of generic runners in work-stealing mode; 0 for one per processor.
+     */
+    public int getWorkStealingRunners() {
+        return workStealingRunners;
+    }
+
+    public void setWorkStealingRunners(int workStealingRunners) {
+        this.workStealingRunners = workStealingRunners;
+    }
+
+    /**
+     * Whether all runners stop running scenarios once a scenario with the failFast tag failed.
+     */
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * The tag of the scenarios whose failure stops the suite in failFast mode; empty for any
+     * scenario.
+     */
+    public String getFailFastTag() {
+        return failFastTag;
+    }
+
+    public void setFailFastTag(String failFastTag) {
+        this.failFastTag = failFastTag;
+    }
+
+    /**
+     * Whether a single runner is generated that runs all batches of scenariosPerRunner locations
+     * on runnerThreads threads in the test JVM, instead of one runner per batch.
+     */
+    public boolean isThreadedRunner() {
+        return threadedRunner;
+    }
+
+    public void setThreadedRunner(boolean threadedRunner) {
+        this.threadedRunner = threadedRunner;
+    }
+
+    /**
+     * The number of threads of the threaded runner; 0 for one per processor of the test JVM's
+     * machine.
+     */
+    public int getRunnerThreads() {
+        return runnerThreads;
+    }
+
+    public void setRunnerThreads(int runnerThreads) {
+        this.runnerThreads = runnerThreads;
+    }
+
+    /**
+     * Whether the plugin sets maxParallelForks and forkEvery of the test task, where the build
+     * script leaves them at their defaults, from the planned runners, the processors and
+     * forkMemoryMegabytes.
+     */
+    public boolean isSizeTestForks() {
+        return sizeTestForks;
+    }
+
+    public void setSizeTestForks(boolean sizeTestForks) {
+        this.sizeTestForks = sizeTestForks;
+    }
+
+    /**
+     * The memory budget of one test fork, also used as its maximum heap unless the test task
+     * sets one; 0 to not limit the forks by memory.
+     */
+    public int getForkMemoryMegabytes() {
+        return forkMemoryMegabytes;
+    }
+
+    public void setForkMemoryMegabytes(int forkMemoryMegabytes) {
+        this.forkMemoryMegabytes = forkMemoryMegabytes;
+    }
+
+    /**
+     * The most runners a test fork runs before it is replaced by a new one; 0 to keep every
+     * fork to the end.
+     */
+    public int getMaxRunnersPerFork() {
+        return maxRunnersPerFork;
+    }
+
+    public void setMaxRunnersPerFork(int maxRunnersPerFork) {
+        this.maxRunnersPerFork = maxRunnersPerFork;
+    }
+
+    /**
+     * Whether runners are named and dispatched to the test forks longest expected duration
+     * first.
+     */
+    public boolean isOrderRunnersByDuration() {
+        return orderRunnersByDuration;
+    }
+
+    public void setOrderRunnersByDuration(boolean orderRunnersByDuration) {
+        this.orderRunnersByDuration = orderRunnersByDuration;
+    }
 }
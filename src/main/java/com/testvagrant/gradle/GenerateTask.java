@@ -7,6 +7,19 @@ import com.testvagrant.gradle.generate.OverriddenRerunOptionsParameters;
 import com.testvagrant.gradle.generate.name.OneUpCounter;
 import com.testvagrant.gradle.generate.name.ClassNamingScheme;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileTree;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
 import org.slf4j.Logger;
@@ -14,8 +27,27 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
+/**
+ * Generates the runner classes. The feature files, the generator settings and the template are
+ * declared as inputs and the output directory as output, so the task is skipped when nothing
+ * changed and its output can be restored from the build cache. Feature files are tracked by
+ * their path relative to the features directory, so cache entries can be shared between
+ * checkouts in different locations.
+ */
+@CacheableTask
 public class GenerateTask extends DefaultTask {
 
+    /**
+     * The cursor of the work queue, relative to the build directory. Deleted before each test
+     * run so the forks start from the first batch.
+     */
+    public static final String WORK_QUEUE_CURSOR_FILE = "cuke-parallel/work-queue.cursor";
+
+    private static final String PARSE_CACHE_FILE = "cuke-parallel/feature-summaries.bin";
+    private static final String BUILD_REPORT_FILE = "cuke-parallel/generate-report.json";
+    private static final String SHARD_INDEX_PROPERTY = "cukeParallel.shardIndex";
+    private static final String SHARD_COUNT_PROPERTY = "cukeParallel.shardCount";
+
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
     CucumberItGenerator fileGenerator;
@@ -25,21 +57,15 @@ public class GenerateTask extends DefaultTask {
         log.info("Starting generator task");
 
         try {
-            CukePluginExtension extension = getProject().getExtensions().findByType(CukePluginExtension.class);
-//            File outputDirectory = extension.getOutputDirectory();
-            String outputDirectory = extension.getOutputDirectory();
-            String featuresDirectory = extension.getFeaturesDirectory();
-
-//            if (!new File(featuresDirectory).exists()) {
-//                throw new TaskExecutionException("Features directory does not exist");
-//            }
+            CukePluginExtension extension = getExtension();
+            File outputDirectory = getOutputDirectory();
 
-            if (extension.getRetryCount() > 0) {
-                extension.setUseReRun(true);
+            if (extension.isIncremental()) {
+                outputDirectory.mkdirs();
+            } else {
+                recreateOutputDirectory(outputDirectory);
             }
 
-            recreateOutputDirectory(extension.getOutputDirectory());
-
             final OverriddenCucumberOptionsParameters overriddenParameters =
                     overrideParametersWithCucumberOptions(extension);
 
@@ -56,8 +82,26 @@ public class GenerateTask extends DefaultTask {
                     overriddenParameters,
                     classNamingScheme,
                     rerunOptionsParameters);
+            fileGenerator.setLogger(getLogger());
+            if (extension.isUseParseCache()) {
+                fileGenerator.setParseCacheFile(getParseCacheFile());
+            }
+            fileGenerator.setDurationHistoryDirectory(
+                    getProject().file(extension.getCucumberOutputDir()));
+            if (extension.getShardDurationHistory() != null) {
+                fileGenerator.setShardDurationHistoryDirectory(
+                        getProject().file(extension.getShardDurationHistory()));
+            }
+            // the runners resolve these against the test working directory, the project directory
+            fileGenerator.setWorkQueuePaths(
+                    getProject().relativePath(
+                            new File(outputDirectory, CucumberItGenerator.WORK_QUEUE_FILE)),
+                    getProject().relativePath(
+                            new File(getProject().getBuildDir(), WORK_QUEUE_CURSOR_FILE)));
 
-            fileGenerator.generateCucumberItFiles(new File(outputDirectory));
+            fileGenerator.generateCucumberItFiles(outputDirectory);
+            fileGenerator.getMetrics().write(getBuildReport());
+            getLogger().lifecycle(fileGenerator.getMetrics().summary());
 
 
 //            project.addTestCompileSourceRoot(outputDirectory.getAbsolutePath());
@@ -71,21 +115,248 @@ public class GenerateTask extends DefaultTask {
 
     }
 
+    @Internal
+    public CukePluginExtension getExtension() {
+        return getProject().getExtensions().findByType(CukePluginExtension.class);
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getFeatureFiles() {
+        final ConfigurableFileTree featureFiles =
+                getProject().fileTree(getExtension().getFeaturesDirectory());
+        featureFiles.include("**/*.feature");
+        return featureFiles;
+    }
+
+    /**
+     * The reports of the previous run, which decide how runners are balanced and the order of
+     * the runners or the work queue. Only tracked when they are used, as they change with every
+     * test run.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getDurationHistory() {
+        if (!getExtension().isBalanceRunnersByDuration() && !getExtension().isWorkStealing()
+                && !getExtension().isOrderRunnersByDuration()) {
+            return getProject().files();
+        }
+        final ConfigurableFileTree reports =
+                getProject().fileTree(getExtension().getCucumberOutputDir());
+        reports.include("**/*.json");
+        return reports;
+    }
+
+    /**
+     * The shared reports the shards are balanced with, when set.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getShardDurationHistory() {
+        if (!getExtension().isBalanceRunnersByDuration()
+                || getExtension().getShardDurationHistory() == null) {
+            return getProject().files();
+        }
+        final ConfigurableFileTree reports =
+                getProject().fileTree(getExtension().getShardDurationHistory());
+        reports.include("**/*.json");
+        return reports;
+    }
+
+    @OutputDirectory
+    public File getOutputDirectory() {
+        return getProject().file(getExtension().getOutputDirectory());
+    }
+
+    /**
+     * The timings and counters of the run that generated the runners, restored from the build
+     * cache together with them.
+     */
+    @OutputFile
+    public File getBuildReport() {
+        return new File(getProject().getBuildDir(), BUILD_REPORT_FILE);
+    }
+
+    /**
+     * The feature summaries kept between runs. Local to this build directory and never taken
+     * from the build cache.
+     */
+    @LocalState
+    public File getParseCacheFile() {
+        return new File(getProject().getBuildDir(), PARSE_CACHE_FILE);
+    }
+
+    @Input
+    public String getTemplateName() {
+        return CucumberItGenerator.templateName(getExtension());
+    }
+
+    @Input
+    public String getFeaturesDirectory() {
+        return getExtension().getFeaturesDirectory();
+    }
+
+    @Input
+    public String getEncoding() {
+        return getExtension().getEncoding();
+    }
+
+    @Input
+    public String getCucumberOutputDir() {
+        return getExtension().getCucumberOutputDir();
+    }
+
+    @Input
+    public String getNamingScheme() {
+        return getExtension().getNamingScheme();
+    }
+
+    @Input
+    @Optional
+    public String getNamingPattern() {
+        return getExtension().getNamingPattern();
+    }
+
+    @Input
+    public boolean isFilterFeaturesByTags() {
+        return getExtension().isFilterFeaturesByTags();
+    }
 
-    private void recreateOutputDirectory(String directory) {
-        if (new File(directory).exists()) {
-            File[] files = new File(directory).listFiles();
+    @Input
+    public boolean isFilterScenarioAndOutlineByLines() {
+        return getExtension().isFilterScenarioAndOutlineByLines();
+    }
+
+    @Input
+    @Optional
+    public String getGlue() {
+        return getExtension().getGlue();
+    }
+
+    @Input
+    @Optional
+    public String getTags() {
+        return getExtension().getTags();
+    }
+
+    @Input
+    @Optional
+    public String getFormat() {
+        return getExtension().getFormat();
+    }
+
+    @Input
+    public boolean isStrict() {
+        return getExtension().isStrict();
+    }
+
+    @Input
+    public boolean isMonochrome() {
+        return getExtension().isMonochrome();
+    }
+
+    @Input
+    @Optional
+    public String getCucumberOptions() {
+        return getExtension().getCucumberOptions();
+    }
+
+    @Input
+    public int getRetryCount() {
+        return getExtension().getRetryCount();
+    }
+
+    @Input
+    public int getRerunThreads() {
+        return getExtension().getRerunThreads();
+    }
+
+    @Input
+    public boolean isConsolidateReportsAfterTest() {
+        return getExtension().isConsolidateReportsAfterTest();
+    }
+
+    @Input
+    public int getScenariosPerRunner() {
+        return getExtension().getScenariosPerRunner();
+    }
+
+    @Input
+    public int getTargetRunnerCount() {
+        return getExtension().getTargetRunnerCount();
+    }
+
+    @Input
+    public boolean isBalanceRunnersByDuration() {
+        return getExtension().isBalanceRunnersByDuration();
+    }
+
+    @Input
+    public boolean isOrderRunnersByDuration() {
+        return getExtension().isOrderRunnersByDuration();
+    }
+
+    @Input
+    public boolean isWorkStealing() {
+        return getExtension().isWorkStealing();
+    }
+
+    @Input
+    public int getWorkStealingRunners() {
+        return getExtension().getWorkStealingRunners();
+    }
+
+    @Input
+    public boolean isThreadedRunner() {
+        return getExtension().isThreadedRunner();
+    }
+
+    @Input
+    public int getRunnerThreads() {
+        return getExtension().getRunnerThreads();
+    }
+
+    @Input
+    public boolean isFailFast() {
+        return getExtension().isFailFast();
+    }
+
+    @Input
+    @Optional
+    public String getFailFastTag() {
+        return getExtension().getFailFastTag();
+    }
+
+    /**
+     * The shard settings after cucumberOptions and system properties have been applied, as
+     * they decide which runners this node generates.
+     */
+    @Input
+    public int getShardIndex() {
+        return overrideParametersWithCucumberOptions(getExtension()).getShardIndex();
+    }
+
+    @Input
+    public int getShardCount() {
+        return overrideParametersWithCucumberOptions(getExtension()).getShardCount();
+    }
+
+    private void recreateOutputDirectory(File directory) {
+        if (directory.exists()) {
+            File[] files = directory.listFiles();
             for (File file : files) {
                 file.delete();
             }
-            new File(directory).delete();
+            directory.delete();
         }
-        new File(directory).mkdirs();
+        directory.mkdirs();
     }
 
     /**
      * Overrides the parameters with cucumber.options if they have been
-     * specified. Currently only tags are supported.
+     * specified. Currently only tags are supported. The shard settings can
+     * further be overridden with the cukeParallel.shardIndex and
+     * cukeParallel.shardCount system properties.
      *
      * @param extension
      * @return
@@ -102,7 +373,19 @@ public class GenerateTask extends DefaultTask {
             overriddenParameters.setFormat(extension.getFormat());
         }
 
+        overriddenParameters.setShardIndex(extension.getShardIndex())
+                .setShardCount(extension.getShardCount());
+
         overriddenParameters.overrideParametersWithCucumberOptions(extension.getCucumberOptions());
+
+        final String shardIndex = System.getProperty(SHARD_INDEX_PROPERTY);
+        if (shardIndex != null && !shardIndex.trim().isEmpty()) {
+            overriddenParameters.setShardIndex(Integer.parseInt(shardIndex.trim()));
+        }
+        final String shardCount = System.getProperty(SHARD_COUNT_PROPERTY);
+        if (shardCount != null && !shardCount.trim().isEmpty()) {
+            overriddenParameters.setShardCount(Integer.parseInt(shardCount.trim()));
+        }
         return overriddenParameters;
 
     }
@@ -0,0 +1,100 @@
+package com.testvagrant.gradle;
+
+import com.testvagrant.gradle.generate.CucumberItGenerator;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.util.PatternSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Makes a test task pick up the generated runners in the order of the runner order file, so
+ * the longest runners are handed to the forks first. Test classes are dispatched in the order
+ * they are found in the test classes directories; the runner classes are therefore put in front
+ * of the directories, one file at a time, and left out of the directories themselves. Runners
+ * are in the default package, so their class names do not depend on the directory they are
+ * found in.
+ *
+ * <p>The test task is configured once, with a collection that reads the order file whenever the
+ * task resolves its test classes, so the runners generated in the same build are picked up.</p>
+ */
+public class RunnerOrdering {
+
+    private final CukePluginExtension extension;
+
+    public RunnerOrdering(final CukePluginExtension extension) {
+        this.extension = extension;
+    }
+
+    public void configure(final Test test) {
+        final Project project = test.getProject();
+        final FileCollection classesDirs = test.getTestClassesDirs();
+        test.setTestClassesDirs(project.files(new Callable<Object>() {
+            public Object call() {
+                if (!extension.isOrderRunnersByDuration()) {
+                    return classesDirs;
+                }
+                try {
+                    return ordered(project, classesDirs);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }).builtBy(classesDirs));
+    }
+
+    /**
+     * The runner classes listed in the order file, in that order, followed by all other test
+     * classes, or the classes directories themselves when there is no order file.
+     */
+    private FileCollection ordered(final Project project, final FileCollection classesDirs)
+            throws IOException {
+        final File orderFile = new File(project.file(extension.getOutputDirectory()),
+                CucumberItGenerator.RUNNER_ORDER_FILE);
+        if (!orderFile.isFile()) {
+            return classesDirs;
+        }
+        final List<File> runnerClasses = new ArrayList<File>();
+        final Set<String> runnerClassFiles = new HashSet<String>();
+        for (final String line : FileUtils.readLines(orderFile, "UTF-8")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            for (final File dir : classesDirs.getFiles()) {
+                final File runnerClass = new File(dir, line + ".class");
+                if (runnerClass.isFile()) {
+                    runnerClasses.add(runnerClass);
+                    runnerClassFiles.add(runnerClass.getName());
+                    break;
+                }
+            }
+        }
+        if (runnerClasses.isEmpty()) {
+            return classesDirs;
+        }
+
+        // each file of a collection becomes a tree of its own, visited in collection order
+        final FileTree ordered = project.files(runnerClasses).getAsFileTree();
+        final PatternSet withoutRunners = new PatternSet();
+        withoutRunners.exclude(new Spec<FileTreeElement>() {
+            public boolean isSatisfiedBy(final FileTreeElement element) {
+                return element.getRelativePath().getSegments().length == 1
+                        && runnerClassFiles.contains(element.getName());
+            }
+        });
+        final FileTree others = classesDirs.getAsFileTree().matching(withoutRunners);
+        return ordered.plus(others);
+    }
+}
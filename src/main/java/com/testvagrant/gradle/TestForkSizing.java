@@ -0,0 +1,140 @@
+package com.testvagrant.gradle;
+
+import com.testvagrant.gradle.generate.GenerationManifest;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.testing.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Sizes the forks of a test task from its runners: no more forks than runners, processors, or
+ * fork heaps of forkMemoryMegabytes that fit in the physical memory. Applied once the project is
+ * evaluated from the runners the settings plan, and again when the tests start from the runners
+ * in the generation manifest; settings the build script gave the test task itself are kept.
+ */
+public class TestForkSizing {
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final CukePluginExtension extension;
+
+    public TestForkSizing(final CukePluginExtension extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Sets maxParallelForks and forkEvery where they still have Gradle's defaults, and the
+     * maximum heap where none is set.
+     */
+    public void configure(final Test test) {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final boolean sizeForks = test.getMaxParallelForks() == 1;
+        final boolean sizeForkEvery = test.getForkEvery() == 0;
+        final long[] sized = size(test, plannedRunners(extension, processors), processors,
+                sizeForks, sizeForkEvery);
+        if (test.getMaxHeapSize() == null && extension.getForkMemoryMegabytes() > 0) {
+            test.setMaxHeapSize(extension.getForkMemoryMegabytes() + "m");
+        }
+        if (!sizeForks && !sizeForkEvery) {
+            return;
+        }
+        final File manifest = new File(test.getProject().file(extension.getOutputDirectory()),
+                GenerationManifest.FILE_NAME);
+        // the runners are only known once they are generated; both settings are internal to
+        // the test task, so they may still change when it starts
+        test.doFirst(new Action<Task>() {
+            public void execute(final Task task) {
+                final Test started = (Test) task;
+                final int runners = generatedRunners(manifest);
+                if (runners > 0) {
+                    size(started, runners, processors,
+                            sizeForks && started.getMaxParallelForks() == sized[0],
+                            sizeForkEvery && started.getForkEvery() == sized[1]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the forks and the runners per fork for the number of runners, or from processors
+     * and maxRunnersPerFork alone when it is 0.
+     *
+     * @return the resulting maxParallelForks and forkEvery of the task
+     */
+    private long[] size(final Test test, final int runners, final int processors,
+                        final boolean sizeForks, final boolean sizeForkEvery) {
+        if (sizeForks) {
+            test.setMaxParallelForks(forks(runners > 0 ? runners : processors, processors,
+                    physicalMemoryMegabytes(), extension.getForkMemoryMegabytes()));
+        }
+        if (sizeForkEvery) {
+            test.setForkEvery((long) (runners > 0
+                    ? forkEvery(runners, test.getMaxParallelForks(),
+                    extension.getMaxRunnersPerFork())
+                    : Math.max(0, extension.getMaxRunnersPerFork())));
+        }
+        return new long[]{test.getMaxParallelForks(), test.getForkEvery()};
+    }
+
+    /**
+     * The number of runners listed in the generation manifest, or 0 when it has not been
+     * written.
+     */
+    static int generatedRunners(final File manifest) {
+        return GenerationManifest.load(manifest).getOutputFileNames().size();
+    }
+
+    /**
+     * The number of runners the settings will generate, or 0 when it depends on the feature
+     * files. Gradle never starts more forks than there are test classes, so forks are then
+     * only limited by processors and memory until the runners have been generated.
+     */
+    static int plannedRunners(final CukePluginExtension extension, final int processors) {
+        if (extension.isWorkStealing()) {
+            return extension.getWorkStealingRunners() > 0
+                    ? extension.getWorkStealingRunners() : processors;
+        } else if (extension.isThreadedRunner()) {
+            return 1;
+        } else if (extension.getTargetRunnerCount() > 0) {
+            return extension.getTargetRunnerCount();
+        }
+        return 0;
+    }
+
+    /**
+     * The number of forks, at least one.
+     *
+     * @param physicalMemory the physical memory in megabytes, or 0 when unknown
+     * @param forkMemory     the memory budget of one fork in megabytes, or 0 for no limit
+     */
+    static int forks(final int runners, final int processors, final long physicalMemory,
+                     final int forkMemory) {
+        int forks = Math.min(runners, processors);
+        if (physicalMemory > 0 && forkMemory > 0) {
+            forks = (int) Math.min(forks, physicalMemory / forkMemory);
+        }
+        return Math.max(1, forks);
+    }
+
+    /**
+     * The number of runners a fork runs before it is replaced by a new one, 0 to keep every fork
+     * to the end. Forks are only replaced when their share of the runners exceeds
+     * maxRunnersPerFork.
+     */
+    static int forkEvery(final int runners, final int forks, final int maxRunnersPerFork) {
+        final int share = (runners + forks - 1) / forks;
+        return maxRunnersPerFork > 0 && share > maxRunnersPerFork ? maxRunnersPerFork : 0;
+    }
+
+    private static long physicalMemoryMegabytes() {
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize()
+                    / MEGABYTE;
+        }
+        return 0;
+    }
+}
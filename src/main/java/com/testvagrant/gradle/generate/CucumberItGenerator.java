@@ -3,37 +3,86 @@ package com.testvagrant.gradle.generate;
 
 
 import com.testvagrant.gradle.CukePluginExtension;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.TaskExecutionException;
 import com.testvagrant.gradle.generate.name.ClassNamingScheme;
+import com.testvagrant.gradle.generate.name.Counter;
+import com.testvagrant.gradle.generate.name.KeyHashCounter;
+import com.testvagrant.gradle.generate.name.OneUpCounter;
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import com.testvagrant.gradle.generate.index.FeatureSummary;
+import com.testvagrant.gradle.generate.index.FeatureSummaryCache;
+import com.testvagrant.gradle.generate.index.ScenarioEntry;
+import com.testvagrant.gradle.generate.index.ScenarioSummary;
+import com.testvagrant.gradle.generate.schedule.DurationHistory;
+import com.testvagrant.gradle.generate.schedule.DurationScheduler;
+import com.testvagrant.gradle.generate.schedule.ShardSelector;
 
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
 //import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
-import gherkin.AstBuilder;
-import gherkin.Parser;
-import gherkin.TokenMatcher;
-import gherkin.ast.*;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
 
 public class CucumberItGenerator {
 
+    /**
+     * The batches of the work-stealing and threaded modes, written next to the runners and
+     * read by them when they run.
+     */
+    public static final String WORK_QUEUE_FILE = "cuke-work-queue.txt";
+
+    /**
+     * The system property that identifies a test run to the work-stealing runners, so a cursor
+     * left behind by an earlier run is not mistaken for the progress of this one.
+     */
+    public static final String TEST_RUN_PROPERTY = "cukeParallel.testRun";
+
+    /**
+     * The marker file under cucumberOutputDir that tells all runners to stop in failFast mode.
+     */
+    public static final String ABORT_FILE = "cuke-parallel.abort";
+
+    /**
+     * The class names of the runners, longest expected duration first, written when runners
+     * are ordered by duration.
+     */
+    public static final String RUNNER_ORDER_FILE = "cuke-runner-order.txt";
+
+    private static final String RUNNER_ORDER_HEADER = "# cuke-parallel runner order v1";
+    private static final String FAIL_FAST_PACKAGE = "cukeparallel.failfast";
+    private static final String FAIL_FAST_HOOK_TEMPLATE = "cucumber-fail-fast-hook.vm";
+    private static final String RUNNER_SUPPORT_PACKAGE = "cukeparallel.support";
+    private static final String RUNNER_SUPPORT_TEMPLATE = "cucumber-runner-support.vm";
+    private static final String WORK_QUEUE_HEADER = "# cuke-parallel work queue v1";
+    private static final String WORK_STEALING_FEATURE = "work-stealing.feature";
+    private static final String THREADED_FEATURE = "threaded.feature";
+
     private final CukePluginExtension extension;
     private final OverriddenCucumberOptionsParameters overriddenParameters;
     private final OverriddenRerunOptionsParameters overriddenRerunOptionsParameters;
     private final ClassNamingScheme classNamingScheme;
-    int fileCounter = 1;
-    private String featureFileLocation;
+    private String templateName;
     private Template velocityTemplate;
-    private String outputFileName;
-    private String htmlFormat;
-    private String jsonFormat;
-    private String rerunFormat;
+    private Template failFastHookTemplate;
+    private Template runnerSupportTemplate;
+    private File parseCacheFile;
+    private File durationHistoryDirectory;
+    private File shardDurationHistoryDirectory;
+    private DurationHistory durationHistory;
+    private String workQueuePath;
+    private String workQueueCursorPath;
+    private String queueFileOfRunners;
+    private String cursorFileOfRunners;
+    private GenerationMetrics metrics = new GenerationMetrics();
+    private Logger logger = Logging.getLogger(CucumberItGenerator.class);
 
     public CucumberItGenerator(final CukePluginExtension extension,
                                final OverriddenCucumberOptionsParameters overriddenParameters,
@@ -54,158 +103,341 @@ public class CucumberItGenerator {
         final VelocityEngine engine = new VelocityEngine(props);
         engine.init();
 
-        if (extension.isUseTestNG()) {
-            velocityTemplate = engine.getTemplate("cucumber-testng-runner.vm",
-                    extension.getEncoding());
+        templateName = templateName(extension);
+        velocityTemplate = engine.getTemplate(templateName, extension.getEncoding());
+        if (extension.isFailFast()) {
+            failFastHookTemplate =
+                    engine.getTemplate(FAIL_FAST_HOOK_TEMPLATE, extension.getEncoding());
+        }
+        if (usesRunnerSupport(templateName)) {
+            runnerSupportTemplate =
+                    engine.getTemplate(RUNNER_SUPPORT_TEMPLATE, extension.getEncoding());
+        }
+    }
+
+    /**
+     * Whether the runners of a template run Cucumber through the generated RunnerSupport class.
+     */
+    private static boolean usesRunnerSupport(final String templateName) {
+        return templateName.equals("cucumber-junit-re-runner.vm")
+                || templateName.equals("cucumber-junit-work-stealing-runner.vm")
+                || templateName.equals("cucumber-junit-threaded-runner.vm");
+    }
+
+    /**
+     * The classpath resource of the Velocity template runners are generated from.
+     */
+    public static String templateName(final CukePluginExtension extension) {
+        if (extension.isWorkStealing()) {
+            return "cucumber-junit-work-stealing-runner.vm";
+        } else if (extension.isThreadedRunner()) {
+            return "cucumber-junit-threaded-runner.vm";
+        } else if (extension.isUseTestNG()) {
+            return "cucumber-testng-runner.vm";
         } else if (extension.isUseReRun()) {
-            velocityTemplate = engine.getTemplate("cucumber-junit-re-runner.vm",
-                    extension.getEncoding());
+            return "cucumber-junit-re-runner.vm";
         } else {
-            velocityTemplate = engine.getTemplate("cucumber-junit-runner.vm",
-                    extension.getEncoding());
+            return "cucumber-junit-runner.vm";
         }
     }
 
+    /**
+     * Sets the logger progress and warnings are reported to, normally the logger of the task.
+     */
+    public void setLogger(final Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets the file feature summaries are cached in between runs, or null to parse every
+     * feature file on every run.
+     */
+    public void setParseCacheFile(final File parseCacheFile) {
+        this.parseCacheFile = parseCacheFile;
+    }
+
+    /**
+     * Sets the directory the Cucumber JSON reports of the previous run are read from when
+     * runners are balanced by duration. Defaults to cucumberOutputDir.
+     */
+    public void setDurationHistoryDirectory(final File durationHistoryDirectory) {
+        this.durationHistoryDirectory = durationHistoryDirectory;
+    }
+
+    /**
+     * Sets the directory of reports that every node of a sharded run shares, or null to hash
+     * scenarios to shards. Shards are only balanced by duration with a shared history, as the
+     * reports of each node differ and would make the shards overlap.
+     */
+    public void setShardDurationHistoryDirectory(final File shardDurationHistoryDirectory) {
+        this.shardDurationHistoryDirectory = shardDurationHistoryDirectory;
+    }
+
+    /**
+     * Sets the paths the work-stealing runners read the work queue from and keep their shared
+     * position in, as seen from the working directory of the tests. Default to the queue file
+     * in the output directory and a cursor file next to it.
+     */
+    public void setWorkQueuePaths(final String workQueuePath, final String workQueueCursorPath) {
+        this.workQueuePath = workQueuePath;
+        this.workQueueCursorPath = workQueueCursorPath;
+    }
+
     public void generateCucumberItFiles(final File outputDirectory)
             throws TaskExecutionException {
 
-        Collection<File> featureFiles = new ArrayList<File>();
-        if (overriddenParameters.getFeaturePaths().size() != 0) {
-            for (final String f : overriddenParameters.getFeaturePaths()) {
-                featureFiles.add(new File(f));
+        metrics = new GenerationMetrics();
+        final Collection<File> featureFiles = new ArrayList<File>();
+        for (final String f : overriddenParameters.getFeaturePaths()) {
+            featureFiles.add(new File(f));
+        }
+        final FeatureSummaryCache cache = parseCacheFile == null
+                ? null : new FeatureSummaryCache(parseCacheFile);
+        if (cache != null) {
+            cache.load();
+        }
+        final GenerationPipeline pipeline = new GenerationPipeline(
+                extension.getFeaturesDirectory(),
+                Charset.forName(extension.getEncoding()),
+                cache,
+                extension.getParserThreads(),
+                extension.getRendererThreads(),
+                extension.getWriterThreads(),
+                extension.getPipelineQueueCapacity(),
+                metrics);
+        final FeatureIndex featureIndex = pipeline.index(featureFiles);
+        metrics.countIndex(featureIndex);
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (final IOException e) {
+                logger.warn("Could not save feature summary cache " + parseCacheFile
+                        + ": " + e.getMessage());
             }
-        } else {
-            featureFiles = FileUtils.listFiles(new File(extension.getFeaturesDirectory()),
-                    new String[]{"feature"}, true);
         }
-        List<String> parsedTags = new ArrayList<String>();
-        System.out.println("Tags -- " + overriddenParameters.getTags());
-        String[] allTags = overriddenParameters.getTags().split(",");
-        // length is 1 because of --tags in RuntimeOptions
-        if (allTags.length == 1 && allTags[0].equals("--tags")) {
-            parsedTags.addAll(getAllTagsFromAllFeatureFiles());
+
+        final long[] tagResolution = metrics.start();
+        final List<ScenarioBatch> batches = planBatches(featureIndex);
+        // the queue and order files of another mode would be stale
+        new File(outputDirectory, WORK_QUEUE_FILE).delete();
+        new File(outputDirectory, RUNNER_ORDER_FILE).delete();
+        final List<RunnerDefinition> runners;
+        if (extension.isWorkStealing()) {
+            writeWorkQueue(outputDirectory, batches);
+            queueFileOfRunners = workQueuePath(outputDirectory).replace('\\', '/');
+            cursorFileOfRunners = workQueueCursorPath(outputDirectory).replace('\\', '/');
+            runners = planWorkStealingRunners(batches.size());
+        } else if (extension.isThreadedRunner()) {
+            writeWorkQueue(outputDirectory, batches);
+            queueFileOfRunners = workQueuePath(outputDirectory).replace('\\', '/');
+            runners = planThreadedRunner(batches);
+        } else if (extension.isOrderRunnersByDuration()) {
+            // names stay in plan order; only the order file follows the rank
+            runners = planRunners(batches);
+            writeRunnerOrder(outputDirectory, batches, runners);
         } else {
-            for (final String t : allTags) {
-                parsedTags.add(t.replaceAll("\"", "").replaceAll("\\s+", ""));
+            runners = planRunners(batches);
+        }
+        metrics.end(GenerationMetrics.TAG_RESOLUTION, tagResolution);
+        final File manifestFile = new File(outputDirectory, GenerationManifest.FILE_NAME);
+        final GenerationManifest previousManifest = GenerationManifest.load(manifestFile);
+        final GenerationManifest manifest = new GenerationManifest();
+        final List<RunnerDefinition> changedRunners = new ArrayList<RunnerDefinition>();
+        final String settingsFingerprint = settingsFingerprint();
+        for (final RunnerDefinition runner : runners) {
+            final String fingerprint = GenerationManifest.fingerprint(settingsFingerprint,
+                    runner.getKey(), runner.getFeatureLocations());
+            manifest.add(runner, fingerprint);
+            if (!extension.isIncremental()
+                    || !fingerprint.equals(previousManifest.getFingerprint(
+                    runner.getOutputFileName()))
+                    || !outputFile(outputDirectory, runner).isFile()) {
+                changedRunners.add(runner);
             }
         }
+        if (extension.isIncremental()) {
+            deleteOrphanedRunners(outputDirectory, manifest);
+        }
 
-        for (final String tag : parsedTags) {
-            for (final File file : featureFiles) {
-                try {
-                    Parser<GherkinDocument> parser = new Parser<>(new AstBuilder());
-                    GherkinDocument gherkinDocument = null;
-                    try {
-                        gherkinDocument = parser.parse(new FileReader(file),
-                                new TokenMatcher());
-                    } catch (FileNotFoundException e) {
-                        e.printStackTrace();
-                    }
-                    List<Tag> featureTags = gherkinDocument.getFeature().getTags();
-                    if (extension.isFilterFeaturesByTags()) {
-                        for (final Tag t : featureTags) {
-                            if (tag.startsWith("~") && ("~" + t.getName()).equals(tag)) {
-                                // Don't plugin.com.tv.gradle.generate file
-                            }
-                            if (t.getName().equals(tag)) {
-                                setFeatureFileLocation(file);
-                                generateItFiles(tag, file.getName(), outputDirectory);
-                            }
-                        }
-                    } else {
-                        List<ScenarioDefinition> definitions = gherkinDocument.getFeature()
-                                .getChildren();
-                        for (final ScenarioDefinition definition : definitions) {
-                            if (definition instanceof ScenarioOutline) {
-                                ScenarioOutline scenarioOutline = (ScenarioOutline) definition;
-                                List<Tag> outlineTags = scenarioOutline.getTags();
-                                for (final Tag t : outlineTags) {
-                                    if (tag.startsWith("~") && ("~" + t.getName())
-                                            .equals(tag)) {
-                                        // Don't plugin.com.tv.gradle.generate file
-                                    }
-                                    if (t.getName().equals(tag)) {
-                                        if (extension.isFilterScenarioAndOutlineByLines()) {
-                                            List<Examples> examples = scenarioOutline.getExamples();
-                                            for (final Examples example : examples) {
-                                                List<TableRow> tableBody = example.getTableBody();
-                                                for (final TableRow tableRow : tableBody) {
-                                                    setScenarioOutlineLocation(
-                                                            file.getPath()
-                                                                    .substring(file.getPath()
-                                                                            .indexOf(
-                                                                                    new File(
-                                                                                            extension
-                                                                                                    .getFeaturesDirectory())
-                                                                                            .getPath()))
-                                                                    + ":" + tableRow
-                                                                    .getLocation().getLine());
-                                                    generateItFiles(tag, file.getName(),
-                                                            outputDirectory);
-                                                }
-                                            }
-                                        } else {
-                                            setFeatureFileLocation(file);
-                                            generateItFiles(tag, file.getName(), outputDirectory);
-                                        }
-                                    }
-                                }
-                            }
-                            if (definition instanceof Scenario) {
-                                Scenario scenario = (Scenario) definition;
-                                List<Tag> scenarioTags = scenario.getTags();
-                                for (final Tag t : scenarioTags) {
-                                    if (tag.startsWith("~") && ("~" + t.getName())
-                                            .equals(tag)) {
-                                        // Don't plugin.com.tv.gradle.generate file
-                                    }
-                                    if (t.getName().equals(tag)) {
-                                        if (extension.isFilterScenarioAndOutlineByLines()) {
-                                            setScenarioOutlineLocation(
-                                                    file.getPath()
-                                                            .substring(file.getPath()
-                                                                    .indexOf(
-                                                                            new File(
-                                                                                    extension
-                                                                                            .getFeaturesDirectory())
-                                                                                    .getPath()))
-                                                            + ":" + scenario.getLocation().getLine());
-                                            generateItFiles(tag, file.getName(), outputDirectory);
-                                        } else {
-                                            setFeatureFileLocation(file);
-                                            generateItFiles(tag, file.getName(), outputDirectory);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                } catch (final Exception e) {
-                    throw new RuntimeException(
-                            "Failed to read contents of " + file.getPath()
-                                    + ". Check Feature file syntax errors and make sure that Scenario or "
-                                    + "Scenario outline are "
-                                    + "tagged with at "
-                                    + "least one tag.");
-                }
+        pipeline.write(changedRunners, new GenerationPipeline.RunnerRenderer() {
+            public String render(final RunnerDefinition runner) {
+                final StringWriter writer = new StringWriter();
+                writeContentFromTemplate(writer, runner);
+                return writer.toString();
             }
+        }, outputDirectory);
+        try {
+            manifest.save(manifestFile);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error creating file " + manifestFile, e);
         }
+        writeFailFastHook(outputDirectory);
+        writeRunnerSupport(outputDirectory);
+        metrics.countRunners(runners.size(), changedRunners.size());
+        metrics.finish();
+    }
 
+    /**
+     * The timings and counters of the last generation run.
+     */
+    public GenerationMetrics getMetrics() {
+        return metrics;
     }
 
-    private void generateItFiles(final String tag, final String fileName, final File
-            outputDirectory)
-            throws TaskExecutionException {
-        outputFileName = classNamingScheme.generate(fileName);
-        final File outputFile = new File(outputDirectory, outputFileName + ".java");
-        FileWriter writer = null;
+    /**
+     * Writes the glue class that checks the abort marker before every scenario and sets it on
+     * the first failure with the failFast tag, or removes it when failFast is off. It lives in
+     * its own package, which is added to the glue of every runner.
+     */
+    private void writeFailFastHook(final File outputDirectory) {
+        final File hookFile = new File(outputDirectory,
+                FAIL_FAST_PACKAGE.replace('.', '/') + "/FailFastHook.java");
+        if (failFastHookTemplate == null) {
+            hookFile.delete();
+            return;
+        }
+        final VelocityContext context = new VelocityContext();
+        context.put("packageName", FAIL_FAST_PACKAGE);
+        context.put("failFastTag",
+                extension.getFailFastTag() == null ? "" : extension.getFailFastTag());
+        context.put("abortFile", abortFile());
+        final StringWriter content = new StringWriter();
+        failFastHookTemplate.merge(context, content);
+        writeIfChanged(hookFile, content.toString());
+    }
+
+    /**
+     * Writes the class the runners start Cucumber through, which shares the classpath scan and
+     * backends among all runners of a test JVM, or removes it when the runners do not use it.
+     */
+    private void writeRunnerSupport(final File outputDirectory) {
+        final File supportFile = new File(outputDirectory,
+                RUNNER_SUPPORT_PACKAGE.replace('.', '/') + "/RunnerSupport.java");
+        if (runnerSupportTemplate == null) {
+            supportFile.delete();
+            return;
+        }
+        final VelocityContext context = new VelocityContext();
+        context.put("packageName", RUNNER_SUPPORT_PACKAGE);
+        final StringWriter content = new StringWriter();
+        runnerSupportTemplate.merge(context, content);
+        writeIfChanged(supportFile, content.toString());
+    }
+
+    /**
+     * Writes the content unless the file already has it, so an unchanged file is left untouched
+     * like the runners of an incremental run.
+     */
+    private void writeIfChanged(final File file, final String content) {
         try {
-            writer = new FileWriter(outputFile);
-            writeContentFromTemplate(writer, tag);
+            if (file.isFile()
+                    && FileUtils.readFileToString(file, extension.getEncoding()).equals(content)) {
+                return;
+            }
+            FileUtils.writeStringToFile(file, content, extension.getEncoding());
         } catch (final IOException e) {
-            throw new RuntimeException("Error creating file "
-                    + outputFile, e);
+            throw new RuntimeException("Error creating file " + file, e);
+        }
+    }
+
+    private String abortFile() {
+        return extension.getCucumberOutputDir().replace('\\', '/') + "/" + ABORT_FILE;
+    }
+
+    /**
+     * The glue packages of the runners, with the fail-fast hook when failFast is on.
+     */
+    private String glue() {
+        return extension.isFailFast()
+                ? overriddenParameters.getGlue() + "," + FAIL_FAST_PACKAGE
+                : overriddenParameters.getGlue();
+    }
+
+    private static File outputFile(final File outputDirectory, final RunnerDefinition runner) {
+        return new File(outputDirectory, runner.getOutputFileName() + ".java");
+    }
+
+    /**
+     * Deletes the runner sources in the output directory that are not part of this run, leaving
+     * the runners that are still current untouched.
+     */
+    private void deleteOrphanedRunners(final File outputDirectory,
+                                       final GenerationManifest manifest) {
+        final File[] files = outputDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(".java") && !manifest.getOutputFileNames().contains(
+                    name.substring(0, name.length() - ".java".length()))) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Everything besides the runner definition itself that ends up in a generated runner. A
+     * runner whose definition and settings fingerprint are unchanged does not need to be
+     * rendered again.
+     */
+    private String settingsFingerprint() {
+        return GenerationManifest.fingerprint(templateName, templateContent(),
+                extension.getEncoding(),
+                overriddenParameters.isStrict(),
+                overriddenParameters.isMonochrome(),
+                glue(),
+                overriddenParameters.getFormat(),
+                extension.getCucumberOutputDir(),
+                extension.isUseReRun(),
+                extension.isFilterScenarioAndOutlineByLines(),
+                overriddenRerunOptionsParameters.getRetryCount(),
+                extension.getRerunThreads(),
+                extension.isConsolidateReportsAfterTest(),
+                queueFileOfRunners,
+                cursorFileOfRunners,
+                extension.getRunnerThreads());
+    }
+
+    private String templateContent() {
+        final InputStream in = getClass().getClassLoader().getResourceAsStream(templateName);
+        if (in == null) {
+            return "";
+        }
+        try {
+            try {
+                return IOUtils.toString(in, extension.getEncoding());
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Writes the batches to the work queue file, longest expected duration first, so the
+     * longest work is started first and the forks, or the threads of the threaded runner, finish
+     * at about the same time. Each line holds the tag and the classpath locations of one batch,
+     * separated by tabs.
+     */
+    private void writeWorkQueue(final File outputDirectory, final List<ScenarioBatch> batches) {
+        final List<ScenarioBatch> longestFirst = longestFirst(batches);
+        final File queueFile = new File(outputDirectory, WORK_QUEUE_FILE);
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(queueFile), "UTF-8"));
+            writer.write(WORK_QUEUE_HEADER + "\n");
+            for (final ScenarioBatch batch : longestFirst) {
+                writer.write(batch.getTag());
+                for (final ScenarioLocation location : batch.getLocations()) {
+                    writer.write("\tclasspath:" + location.getLocation());
+                }
+                writer.write("\n");
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Error creating file " + queueFile, e);
         } finally {
             if (writer != null) {
                 try {
@@ -215,58 +447,369 @@ public class CucumberItGenerator {
                 }
             }
         }
-        fileCounter++;
+        logger.info("Queued " + batches.size() + " batches in " + queueFile);
     }
 
     /**
-     * Sets the feature file location based on the given file. The full file path is trimmed to only
-     * include the featuresDirectory. E.g. /myproject/src/test/resources/features/feature1.feature
-     * will be saved as features/feature1.feature
+     * The batches ordered by expected duration, longest first, keeping their order otherwise.
+     */
+    private List<ScenarioBatch> longestFirst(final List<ScenarioBatch> batches) {
+        final DurationScheduler scheduler = new DurationScheduler(durationHistory());
+        final List<ScenarioBatch> longestFirst = new ArrayList<ScenarioBatch>(batches);
+        final Map<ScenarioBatch, Double> estimates = new HashMap<ScenarioBatch, Double>();
+        for (final ScenarioBatch batch : batches) {
+            estimates.put(batch, scheduler.estimate(batch.getLocations()));
+        }
+        Collections.sort(longestFirst, new Comparator<ScenarioBatch>() {
+            public int compare(final ScenarioBatch a, final ScenarioBatch b) {
+                return Double.compare(estimates.get(b), estimates.get(a));
+            }
+        });
+        return longestFirst;
+    }
+
+    /**
+     * Writes the class names of the runners, one per line, in the order the test task should
+     * hand them to the forks: longest expected duration first.
      *
-     * @param file The feature file
+     * @param runners the runners planned for the batches, in batch order
+     */
+    private void writeRunnerOrder(final File outputDirectory, final List<ScenarioBatch> batches,
+                                  final List<RunnerDefinition> runners) {
+        final Map<ScenarioBatch, RunnerDefinition> runnerOfBatch =
+                new HashMap<ScenarioBatch, RunnerDefinition>();
+        for (int i = 0; i < batches.size(); i++) {
+            runnerOfBatch.put(batches.get(i), runners.get(i));
+        }
+        final File orderFile = new File(outputDirectory, RUNNER_ORDER_FILE);
+        final StringBuilder content = new StringBuilder(RUNNER_ORDER_HEADER).append('\n');
+        for (final ScenarioBatch batch : longestFirst(batches)) {
+            content.append(runnerOfBatch.get(batch).getClassName()).append('\n');
+        }
+        try {
+            FileUtils.writeStringToFile(orderFile, content.toString(), "UTF-8");
+        } catch (final IOException e) {
+            throw new RuntimeException("Error creating file " + orderFile, e);
+        }
+    }
+
+    /**
+     * The generic runners of the work-stealing mode: workStealingRunners of them, or one per
+     * processor, but never more than there are batches.
+     */
+    private List<RunnerDefinition> planWorkStealingRunners(final int batchCount) {
+        final int wanted = extension.getWorkStealingRunners() > 0
+                ? extension.getWorkStealingRunners()
+                : java.lang.Runtime.getRuntime().availableProcessors();
+        final List<RunnerDefinition> runners = new ArrayList<RunnerDefinition>();
+        for (int i = 0; i < Math.max(1, Math.min(wanted, batchCount)); i++) {
+            runners.add(new RunnerDefinition(classNamingScheme.generate(WORK_STEALING_FEATURE),
+                    "", new ArrayList<ScenarioLocation>(), runners.size() + 1));
+        }
+        return runners;
+    }
+
+    /**
+     * The single runner of the threaded mode, which runs every batch on its own thread pool.
+     */
+    private List<RunnerDefinition> planThreadedRunner(final List<ScenarioBatch> batches) {
+        final List<ScenarioLocation> locations = new ArrayList<ScenarioLocation>();
+        for (final ScenarioBatch batch : batches) {
+            locations.addAll(batch.getLocations());
+        }
+        return Collections.singletonList(new RunnerDefinition(
+                classNamingScheme.generate(THREADED_FEATURE), "", locations, 1));
+    }
+
+    private String workQueuePath(final File outputDirectory) {
+        return workQueuePath != null
+                ? workQueuePath : new File(outputDirectory, WORK_QUEUE_FILE).getPath();
+    }
+
+    private String workQueueCursorPath(final File outputDirectory) {
+        return workQueueCursorPath != null
+                ? workQueueCursorPath : workQueuePath(outputDirectory) + ".cursor";
+    }
+
+    /**
+     * Names a runner for every batch. Class names are assigned here, in tag and feature file
+     * order, so they do not depend on how the later stages are scheduled. Incremental runs
+     * number runners by their key instead, so adding a scenario renames no other runner.
+     */
+    private List<RunnerDefinition> planRunners(final List<ScenarioBatch> batches) {
+        final Counter counter =
+                extension.isIncremental() ? new KeyHashCounter() : new OneUpCounter();
+        final List<RunnerDefinition> runners = new ArrayList<RunnerDefinition>();
+        for (final ScenarioBatch batch : batches) {
+            final int number =
+                    counter.next(RunnerDefinition.key(batch.getTag(), batch.getLocations()));
+            runners.add(new RunnerDefinition(classNamingScheme.generate(
+                    batch.getLocations().get(0).getFeatureFileName(), number),
+                    batch.getTag(), batch.getLocations(), number));
+        }
+        return runners;
+    }
+
+    /**
+     * Resolves the batches of feature locations to run from the index, one runner or work
+     * queue entry each.
+     */
+    private List<ScenarioBatch> planBatches(final FeatureIndex featureIndex) {
+        List<String> parsedTags = new ArrayList<String>();
+        logger.info("Tags -- " + overriddenParameters.getTags());
+        String[] allTags = overriddenParameters.getTags().split(",");
+        // length is 1 because of --tags in RuntimeOptions
+        if (allTags.length == 1 && allTags[0].equals("--tags")) {
+            parsedTags.addAll(featureIndex.getPrimaryTags(extension.isFilterFeaturesByTags()));
+        } else {
+            for (final String t : allTags) {
+                parsedTags.add(t.replaceAll("\"", "").replaceAll("\\s+", ""));
+            }
+        }
+
+        final Map<String, List<ScenarioLocation>> locationsByTag =
+                new LinkedHashMap<String, List<ScenarioLocation>>();
+        for (final String tag : parsedTags) {
+            locationsByTag.put(tag, resolveLocations(featureIndex, tag));
+        }
+        selectShard(locationsByTag);
+        int locationCount = 0;
+        for (final List<ScenarioLocation> locations : locationsByTag.values()) {
+            locationCount += locations.size();
+        }
+
+        if (extension.isBalanceRunnersByDuration()) {
+            return balanceBatches(locationsByTag);
+        }
+
+        final int locationsPerRunner = locationsPerRunner(locationCount);
+        final List<ScenarioBatch> batches = new ArrayList<ScenarioBatch>();
+        for (final Map.Entry<String, List<ScenarioLocation>> tagged : locationsByTag.entrySet()) {
+            List<ScenarioLocation> locations = tagged.getValue();
+            if (locationsPerRunner > 1) {
+                locations = new ArrayList<ScenarioLocation>(
+                        new LinkedHashSet<ScenarioLocation>(locations));
+            }
+            for (int from = 0; from < locations.size(); from += locationsPerRunner) {
+                batches.add(new ScenarioBatch(tagged.getKey(), locations.subList(from,
+                        Math.min(locations.size(), from + locationsPerRunner))));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Packs the locations of each tag into runners of about equal expected duration, using the
+     * reports of the previous run. The runners are shared among the tags by expected duration.
+     */
+    private List<ScenarioBatch> balanceBatches(
+            final Map<String, List<ScenarioLocation>> locationsByTag) {
+        final List<List<ScenarioLocation>> groups = new ArrayList<List<ScenarioLocation>>();
+        int locationCount = 0;
+        for (final List<ScenarioLocation> locations : locationsByTag.values()) {
+            final List<ScenarioLocation> distinct = new ArrayList<ScenarioLocation>(
+                    new LinkedHashSet<ScenarioLocation>(locations));
+            groups.add(distinct);
+            locationCount += distinct.size();
+        }
+        final DurationHistory history = durationHistory();
+        if (history.isEmpty()) {
+            logger.warn("No duration history in " + historyDirectory()
+                    + ", balancing runners by step count");
+        }
+        final DurationScheduler scheduler = new DurationScheduler(history);
+        final int perRunner = Math.max(1, extension.getScenariosPerRunner());
+        final int runnerCount = extension.getTargetRunnerCount() > 0
+                ? extension.getTargetRunnerCount()
+                : (locationCount + perRunner - 1) / perRunner;
+        final int[] shares = scheduler.shareRunners(groups, runnerCount);
+
+        final List<ScenarioBatch> batches = new ArrayList<ScenarioBatch>();
+        final Iterator<String> tags = locationsByTag.keySet().iterator();
+        for (int i = 0; i < groups.size(); i++) {
+            final String tag = tags.next();
+            for (final List<ScenarioLocation> packed : scheduler.pack(groups.get(i), shares[i])) {
+                batches.add(new ScenarioBatch(tag, packed));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Keeps only the locations of this node's shard when the suite is split across several
+     * machines. With balanceRunnersByDuration and a shared duration history the shards are
+     * balanced by duration, otherwise locations are hashed to shards by identity.
+     */
+    private void selectShard(final Map<String, List<ScenarioLocation>> locationsByTag) {
+        final ShardSelector shards = new ShardSelector(overriddenParameters.getShardIndex(),
+                overriddenParameters.getShardCount());
+        if (!shards.isSharded()) {
+            return;
+        }
+        final List<ScenarioLocation> all = new ArrayList<ScenarioLocation>();
+        for (final List<ScenarioLocation> locations : locationsByTag.values()) {
+            all.addAll(locations);
+        }
+        final DurationScheduler scheduler =
+                extension.isBalanceRunnersByDuration() && shardDurationHistoryDirectory != null
+                        ? new DurationScheduler(loadHistory(shardDurationHistoryDirectory))
+                        : null;
+        final Set<ScenarioLocation> selected = shards.select(all, scheduler);
+        for (final Map.Entry<String, List<ScenarioLocation>> tagged : locationsByTag.entrySet()) {
+            final List<ScenarioLocation> kept = new ArrayList<ScenarioLocation>();
+            for (final ScenarioLocation location : tagged.getValue()) {
+                if (selected.contains(location)) {
+                    kept.add(location);
+                }
+            }
+            tagged.setValue(kept);
+        }
+        logger.lifecycle("Shard " + overriddenParameters.getShardIndex() + " of "
+                + overriddenParameters.getShardCount() + " runs " + selected.size() + " of "
+                + new LinkedHashSet<ScenarioLocation>(all).size() + " locations");
+    }
+
+    private DurationHistory durationHistory() {
+        if (durationHistory == null) {
+            durationHistory = loadHistory(historyDirectory());
+        }
+        return durationHistory;
+    }
+
+    private DurationHistory loadHistory(final File directory) {
+        try {
+            return DurationHistory.load(directory);
+        } catch (final IOException e) {
+            logger.warn("Could not read duration history from " + directory
+                    + ": " + e.getMessage());
+            return new DurationHistory();
+        }
+    }
+
+    private File historyDirectory() {
+        return durationHistoryDirectory != null
+                ? durationHistoryDirectory : new File(extension.getCucumberOutputDir());
+    }
+
+    /**
+     * The feature locations, in feature file order, that a runner is generated for when
+     * running the given tag: whole feature files, scenarios or example rows, depending on
+     * the filter settings.
      */
-    private void setFeatureFileLocation(final File file) {
-        featureFileLocation = file.getPath().substring(file.getPath().indexOf(
-                new File(extension.getFeaturesDirectory()).getPath()))
-                .replace(File.separatorChar, '/');
+    private List<ScenarioLocation> resolveLocations(final FeatureIndex featureIndex,
+                                                    final String tag) {
+        final List<ScenarioLocation> locations = new ArrayList<ScenarioLocation>();
+        if (extension.isFilterFeaturesByTags()) {
+            for (final FeatureSummary feature : featureIndex.getFeaturesTagged(tag)) {
+                locations.add(new ScenarioLocation(feature.getFileName(),
+                        feature.getFeaturePath(), feature.getFeaturePath(),
+                        feature.getStepCount()));
+            }
+            return locations;
+        }
+        for (final ScenarioEntry entry : featureIndex.getScenariosTagged(tag)) {
+            final FeatureSummary feature = entry.getFeature();
+            final ScenarioSummary scenario = entry.getScenario();
+            final String scenarioIdentity = feature.getFeaturePath() + ":"
+                    + (scenario.getName() == null || scenario.getName().isEmpty()
+                    ? String.valueOf(scenario.getLine()) : scenario.getName());
+            if (!extension.isFilterScenarioAndOutlineByLines()) {
+                locations.add(new ScenarioLocation(feature.getFileName(),
+                        feature.getFeaturePath(), feature.getFeaturePath(),
+                        feature.getStepCount()));
+            } else if (scenario.isOutline()) {
+                int row = 0;
+                for (final Integer line : scenario.getExampleLines()) {
+                    locations.add(new ScenarioLocation(feature.getFileName(),
+                            feature.getFeaturePath() + ":" + line,
+                            scenarioIdentity + ":" + (++row), scenario.getStepCount()));
+                }
+            } else {
+                locations.add(new ScenarioLocation(feature.getFileName(),
+                        feature.getFeaturePath() + ":" + scenario.getLine(),
+                        scenarioIdentity, scenario.getStepCount()));
+            }
+        }
+        return locations;
     }
 
-    private void setScenarioOutlineLocation(final String outLine) {
-        featureFileLocation = outLine.replace(File.separatorChar, '/');
+    /**
+     * How many feature locations go into one runner. A target runner count takes precedence
+     * over scenariosPerRunner; either way the runners of one tag are never mixed with another.
+     */
+    private int locationsPerRunner(final int locationCount) {
+        if (extension.getTargetRunnerCount() > 0) {
+            return Math.max(1, (locationCount + extension.getTargetRunnerCount() - 1)
+                    / extension.getTargetRunnerCount());
+        }
+        return Math.max(1, extension.getScenariosPerRunner());
     }
 
-    private void writeContentFromTemplate(final Writer writer, final String tag) {
+    private void writeContentFromTemplate(final Writer writer, final RunnerDefinition runner) {
 
         final VelocityContext context = new VelocityContext();
+        if (extension.isFailFast()) {
+            context.put("abortFile", abortFile());
+        }
         context.put("strict", overriddenParameters.isStrict());
-        context.put("featureFile", featureFileLocation);
+        context.put("featurePaths", createFeaturePathStrings(runner));
         context.put("flagSOutline", extension.isFilterScenarioAndOutlineByLines());
-        context.put("reports", createFormatStrings());
-        context.put("tags", "\"" + tag + "\"");
+        context.put("reports", createFormatStrings(runner));
+        context.put("tags", "\"" + runner.getTag() + "\"");
         context.put("monochrome", overriddenParameters.isMonochrome());
         context.put("cucumberOutputDir", extension.getCucumberOutputDir());
-        if (extension.isUseReRun()) {
-            context.put("glue", overriddenParameters.getGlue());
+        if (extension.isUseReRun() && !extension.isWorkStealing()
+                && !extension.isThreadedRunner()) {
+            context.put("glue", glue());
         } else {
             context.put("glue", quoteGlueStrings());
         }
-        context.put("className", FilenameUtils.removeExtension(outputFileName));
+        context.put("className", runner.getClassName());
+        context.put("runnerSupport", RUNNER_SUPPORT_PACKAGE + ".RunnerSupport");
         context.put(
                 "outPutPath",
                 extension.getCucumberOutputDir().replace('\\', '/') + "/"
-                        + FilenameUtils.removeExtension(outputFileName) + "/"
-                        + FilenameUtils.removeExtension(outputFileName));
+                        + runner.getClassName() + "/"
+                        + runner.getClassName());
         context.put("retryCount", overriddenRerunOptionsParameters.getRetryCount());
-        context.put("htmlFormat", this.htmlFormat);
-        context.put("jsonFormat", this.jsonFormat);
-        context.put("rerunFormat", this.rerunFormat);
+        context.put("rerunThreads", Math.max(0, extension.getRerunThreads()));
+        context.put("consolidateInRunner", !extension.isConsolidateReportsAfterTest());
+        context.put("htmlFormat", createRerunFormatString(runner, "html"));
+        context.put("jsonFormat", createRerunFormatString(runner, "json"));
+        context.put("rerunFormat", createRerunFormatString(runner, "rerun"));
+        if (queueFileOfRunners != null) {
+            context.put("workQueueFile", queueFileOfRunners);
+        }
+        if (cursorFileOfRunners != null) {
+            context.put("workQueueCursorFile", cursorFileOfRunners);
+            context.put("testRunProperty", TEST_RUN_PROPERTY);
+        }
+        if (extension.isThreadedRunner()) {
+            context.put("runnerThreads", extension.getRunnerThreads() > 0
+                    ? extension.getRunnerThreads()
+                    : java.lang.Runtime.getRuntime().availableProcessors());
+        }
         velocityTemplate.merge(context, writer);
     }
 
+    /**
+     * Quotes each feature location of the runner as a classpath resource for use in the template.
+     */
+    private String createFeaturePathStrings(final RunnerDefinition runner) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String location : runner.getFeatureLocations()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("\"classpath:%s\"", location));
+        }
+        return sb.toString();
+    }
+
     /**
      * Create the format string used for the output.
      */
-    private String createFormatStrings() {
+    private String createFormatStrings(final RunnerDefinition runner) {
         final String[] formatStrs = overriddenParameters.getFormat().split(",");
 
         final StringBuilder sb = new StringBuilder();
@@ -278,39 +821,14 @@ public class CucumberItGenerator {
                 sb.append(String.format("\"%s:%s/%s/%s.%s\"",
                         formatStr,
                         extension.getCucumberOutputDir().replace('\\', '/'),
-                        FilenameUtils.removeExtension(outputFileName),
-                        FilenameUtils.removeExtension(outputFileName),
+                        runner.getClassName(),
+                        runner.getClassName(),
                         formatStr));
-                if (formatStr.equalsIgnoreCase("html")) {
-                    htmlFormat = String.format("\"%s:%s/%s/%s.%s\"",
-                            formatStr,
-                            extension.getCucumberOutputDir().replace('\\', '/'),
-                            FilenameUtils.removeExtension(outputFileName),
-                            FilenameUtils.removeExtension(outputFileName),
-                            formatStr);
-                }
-                if (formatStr.equalsIgnoreCase("json")) {
-                    jsonFormat = String.format("\"%s:%s/%s/%s.%s\"",
-                            formatStr,
-                            extension.getCucumberOutputDir().replace('\\', '/'),
-                            FilenameUtils.removeExtension(outputFileName),
-                            FilenameUtils.removeExtension(outputFileName),
-                            formatStr);
-                }
-                if (formatStr.equalsIgnoreCase("rerun")) {
-                    rerunFormat = String.format("\"%s:%s/%s/%s.%s\"",
-                            formatStr,
-                            extension.getCucumberOutputDir().replace('\\', '/'),
-                            FilenameUtils.removeExtension(outputFileName),
-                            FilenameUtils.removeExtension(outputFileName),
-                            "txt");
-                }
-
             } else {
                 sb.append(String.format("\"%s:%s/%s.%s\"",
                         formatStr,
                         extension.getCucumberOutputDir().replace('\\', '/'),
-                        fileCounter,
+                        runner.getCounter(),
                         formatStr));
             }
             if (i < formatStrs.length - 1) {
@@ -320,11 +838,32 @@ public class CucumberItGenerator {
         return sb.toString();
     }
 
+    /**
+     * Create the plugin string the re-runner uses for the given format, or null when the format
+     * is not configured. Rerun files are written with a txt extension.
+     */
+    private String createRerunFormatString(final RunnerDefinition runner, final String format) {
+        if (!extension.isUseReRun()) {
+            return null;
+        }
+        for (final String formatStr : overriddenParameters.getFormat().split(",")) {
+            if (formatStr.trim().equalsIgnoreCase(format)) {
+                return String.format("\"%s:%s/%s/%s.%s\"",
+                        formatStr.trim(),
+                        extension.getCucumberOutputDir().replace('\\', '/'),
+                        runner.getClassName(),
+                        runner.getClassName(),
+                        format.equals("rerun") ? "txt" : formatStr.trim());
+            }
+        }
+        return null;
+    }
+
     /**
      * Wraps each package in quotes for use in the template.
      */
     private String quoteGlueStrings() {
-        final String[] packageStrs = overriddenParameters.getGlue().split(",");
+        final String[] packageStrs = glue().split(",");
 
         final StringBuilder sb = new StringBuilder();
 
@@ -339,55 +878,4 @@ public class CucumberItGenerator {
         return sb.toString();
     }
 
-    private List<String> getAllTagsFromAllFeatureFiles() {
-        List<String> tags = new ArrayList<String>();
-        Collection<File> featureFiles = new ArrayList<File>();
-        featureFiles = FileUtils.listFiles(new File(extension.getFeaturesDirectory()),
-                new String[]{"feature"}, true);
-        for (final File file : featureFiles) {
-            try {
-                Parser<GherkinDocument> parser = new Parser<>(new AstBuilder());
-                GherkinDocument gherkinDocument = null;
-                try {
-                    gherkinDocument = parser.parse(new FileReader(file),
-                            new TokenMatcher());
-                } catch (FileNotFoundException e) {
-                    e.printStackTrace();
-                }
-                List<Tag> featureTags = gherkinDocument.getFeature().getTags();
-                if (extension.isFilterFeaturesByTags()) {
-                    tags.add(featureTags.get(0).getName());
-                } else {
-                    List<ScenarioDefinition> definitions = gherkinDocument.getFeature()
-                            .getChildren();
-                    for (final ScenarioDefinition definition : definitions) {
-                        if (definition instanceof ScenarioOutline) {
-                            ScenarioOutline scenarioOutline = (ScenarioOutline) definition;
-                            List<Tag> outlineTags = scenarioOutline.getTags();
-                            tags.add(outlineTags.get(0).getName());
-                        }
-                        if (definition instanceof Scenario) {
-                            Scenario scenario = (Scenario) definition;
-                            List<Tag> scenarioTags = scenario.getTags();
-                            tags.add(scenarioTags.get(0).getName());
-                        }
-                    }
-                }
-
-            } catch (final Exception e) {
-                throw new RuntimeException(
-                        "Failed to read contents of " + file.getPath()
-                                + ". Check Feature file syntax errors and make sure that Scenario or "
-                                + "Scenario outline are "
-                                + "tagged with at "
-                                + "least one tag.");
-            }
-        }
-        Set<String> sUniqueElement = new HashSet<String>();
-        sUniqueElement.addAll(tags);
-        tags.clear();
-        tags.addAll(sUniqueElement);
-        return tags;
-    }
-
 }
@@ -0,0 +1,143 @@
+package com.testvagrant.gradle.generate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records, for every generated runner, the tag and feature locations it was generated from and a
+ * fingerprint of everything that went into its source. Kept next to the runners in the output
+ * directory so an incremental run can tell which runners are still current.
+ */
+public class GenerationManifest {
+
+    public static final String FILE_NAME = ".cuke-generation-manifest";
+
+    private static final String HEADER = "# cuke-parallel generation manifest v1";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    public static GenerationManifest load(final File file) {
+        final GenerationManifest manifest = new GenerationManifest();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), UTF_8));
+            try {
+                if (!HEADER.equals(reader.readLine())) {
+                    return manifest;
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String[] fields = line.split("\t", -1);
+                    if (fields.length == 4) {
+                        manifest.entries.put(fields[0],
+                                new Entry(fields[0], fields[1], fields[2], fields[3]));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            // an unreadable manifest only means every runner is regenerated
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    public void save(final File file) throws IOException {
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (final Entry entry : entries.values()) {
+                writer.write(entry.outputFileName + "\t" + entry.fingerprint + "\t" + entry.tag
+                        + "\t" + entry.sources + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void add(final RunnerDefinition runner, final String fingerprint) {
+        entries.put(runner.getOutputFileName(), new Entry(runner.getOutputFileName(),
+                fingerprint, runner.getTag(), join(runner.getFeatureLocations())));
+    }
+
+    /**
+     * @return the fingerprint recorded for the runner, or null if it was not generated
+     */
+    public String getFingerprint(final String outputFileName) {
+        final Entry entry = entries.get(outputFileName);
+        return entry == null ? null : entry.fingerprint;
+    }
+
+    public Set<String> getOutputFileNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    private static String join(final List<String> values) {
+        final StringBuilder joined = new StringBuilder();
+        for (final String value : values) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Hashes the given values, in order, into a hex string.
+     */
+    public static String fingerprint(final Object... values) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (final Object value : values) {
+                digest.update(String.valueOf(value).getBytes(UTF_8));
+                digest.update((byte) 0);
+            }
+            final StringBuilder hex = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final String outputFileName;
+        final String fingerprint;
+        final String tag;
+        final String sources;
+
+        Entry(final String outputFileName, final String fingerprint, final String tag,
+              final String sources) {
+            this.outputFileName = outputFileName;
+            this.fingerprint = fingerprint;
+            this.tag = tag;
+            this.sources = sources;
+        }
+    }
+}
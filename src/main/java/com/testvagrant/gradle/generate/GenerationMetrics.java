@@ -0,0 +1,202 @@
+package com.testvagrant.gradle.generate;
+
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import com.testvagrant.gradle.generate.index.FeatureSummary;
+import com.testvagrant.gradle.generate.index.ScenarioSummary;
+import gherkin.deps.com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wall-clock and CPU time of each phase of a generation run, and counters of what it produced.
+ *
+ * <p>Phases that run on several threads at once are recorded once per thread: the wall time of
+ * a phase runs from the first thread starting it to the last one finishing it, and its CPU time
+ * is the sum over the threads.</p>
+ */
+public class GenerationMetrics {
+
+    public static final String DISCOVERY = "discovery";
+    public static final String PARSING = "parsing";
+    public static final String TAG_RESOLUTION = "tagResolution";
+    public static final String RENDERING = "rendering";
+    public static final String WRITING = "writing";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private long totalNanos;
+    private int featureFiles;
+    private int scenarios;
+    private int exampleRows;
+    private int runners;
+    private int runnersWritten;
+
+    public GenerationMetrics() {
+        for (final String phase : new String[]{DISCOVERY, PARSING, TAG_RESOLUTION, RENDERING,
+                WRITING}) {
+            phases.put(phase, new Phase());
+        }
+    }
+
+    /**
+     * Starts timing a phase on the current thread.
+     *
+     * @return the token to pass to {@link #end}
+     */
+    public long[] start() {
+        return new long[]{System.nanoTime(), threadCpuNanos()};
+    }
+
+    /**
+     * Records the time the current thread spent in a phase since {@link #start}.
+     */
+    public void end(final String phase, final long[] started) {
+        phases.get(phase).record(started[0], System.nanoTime(),
+                threadCpuNanos() - started[1]);
+    }
+
+    public void addBytesWritten(final long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Counts the files, scenarios and example rows of the index.
+     */
+    public void countIndex(final FeatureIndex index) {
+        featureFiles = index.getFeatures().size();
+        scenarios = 0;
+        exampleRows = 0;
+        for (final FeatureSummary feature : index.getFeatures()) {
+            for (final ScenarioSummary scenario : feature.getScenarios()) {
+                scenarios++;
+                exampleRows += scenario.getExampleLines().size();
+            }
+        }
+    }
+
+    public void countRunners(final int runners, final int runnersWritten) {
+        this.runners = runners;
+        this.runnersWritten = runnersWritten;
+    }
+
+    /**
+     * Ends the run; the total time counts from the creation of the metrics.
+     */
+    public void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public int getFeatureFiles() {
+        return featureFiles;
+    }
+
+    public int getScenarios() {
+        return scenarios;
+    }
+
+    public int getExampleRows() {
+        return exampleRows;
+    }
+
+    public int getRunners() {
+        return runners;
+    }
+
+    public int getRunnersWritten() {
+        return runnersWritten;
+    }
+
+    /**
+     * One line with the counters and the wall time of every phase.
+     */
+    public String summary() {
+        final StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "Generated %d of %d runners from %d feature files (%d scenarios, %d example rows,"
+                        + " %d bytes) in %d ms:", runnersWritten, runners, featureFiles,
+                scenarios, exampleRows, bytesWritten.get(), millis(totalNanos)));
+        for (final Map.Entry<String, Phase> phase : phases.entrySet()) {
+            sb.append(String.format(Locale.ROOT, " %s %d ms (cpu %d ms)", phase.getKey(),
+                    millis(phase.getValue().wallNanos()), millis(phase.getValue().cpuNanos.get())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the counters and phase timings as a JSON object.
+     */
+    public void write(final File file) throws IOException {
+        file.getParentFile().mkdirs();
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), Charset.forName("UTF-8"))));
+        try {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("totalMillis").value(millis(totalNanos));
+            writer.name("featureFiles").value(featureFiles);
+            writer.name("scenarios").value(scenarios);
+            writer.name("exampleRows").value(exampleRows);
+            writer.name("runners").value(runners);
+            writer.name("runnersWritten").value(runnersWritten);
+            writer.name("bytesWritten").value(bytesWritten.get());
+            writer.name("phases").beginObject();
+            for (final Map.Entry<String, Phase> phase : phases.entrySet()) {
+                writer.name(phase.getKey()).beginObject();
+                writer.name("wallMillis").value(millis(phase.getValue().wallNanos()));
+                writer.name("cpuMillis").value(millis(phase.getValue().cpuNanos.get()));
+                writer.name("threads").value(phase.getValue().threads.get());
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static long millis(final long nanos) {
+        return nanos / 1000000L;
+    }
+
+    /**
+     * CPU time of the current thread, or 0 where the JVM does not measure it.
+     */
+    private static long threadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static class Phase {
+        private final AtomicLong cpuNanos = new AtomicLong();
+        private final AtomicLong threads = new AtomicLong();
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd = Long.MIN_VALUE;
+
+        synchronized void record(final long start, final long end, final long cpu) {
+            firstStart = Math.min(firstStart, start);
+            lastEnd = Math.max(lastEnd, end);
+            cpuNanos.addAndGet(cpu);
+            threads.incrementAndGet();
+        }
+
+        synchronized long wallNanos() {
+            return lastEnd < firstStart ? 0 : lastEnd - firstStart;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.testvagrant.gradle.generate;
+
+import com.testvagrant.gradle.generate.index.FeatureFileParser;
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import com.testvagrant.gradle.generate.index.FeatureSummary;
+import com.testvagrant.gradle.generate.index.FeatureSummaryCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the stages of a generation run on their own threads, connected by bounded queues.
+ *
+ * <p>Feature files are discovered by a single walker and parsed by a pool of parser threads
+ * while the walk is still going on. Once the index is complete and the runners have been
+ * planned, renderer threads merge the template for each runner and hand the source to writer
+ * threads, so rendering and file output overlap.</p>
+ */
+public class GenerationPipeline {
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final String featuresDirectory;
+    private final Charset charset;
+    private final FeatureSummaryCache cache;
+    private final int parserThreads;
+    private final int rendererThreads;
+    private final int writerThreads;
+    private final int queueCapacity;
+    private final GenerationMetrics metrics;
+
+    public GenerationPipeline(final String featuresDirectory,
+                              final Charset charset,
+                              final FeatureSummaryCache cache,
+                              final int parserThreads,
+                              final int rendererThreads,
+                              final int writerThreads,
+                              final int queueCapacity,
+                              final GenerationMetrics metrics) {
+        this.featuresDirectory = featuresDirectory;
+        this.charset = charset;
+        this.cache = cache;
+        this.parserThreads = Math.max(1, parserThreads);
+        this.rendererThreads = Math.max(1, rendererThreads);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Renders a runner definition to Java source. Implementations are called concurrently.
+     */
+    public interface RunnerRenderer {
+        String render(RunnerDefinition runner);
+    }
+
+    /**
+     * Discovers and parses the feature files. The index keeps discovery order, whatever order
+     * the parser threads finish in. Files found in the summary cache, if any, are not parsed.
+     *
+     * @param featureFiles explicit feature files, or empty to search the features directory
+     * @return the index over all parsed files
+     */
+    public FeatureIndex index(final Collection<File> featureFiles) {
+        final BlockingQueue<DiscoveredFile> discovered =
+                new ArrayBlockingQueue<DiscoveredFile>(queueCapacity);
+        final Map<Integer, FeatureSummary> parsed =
+                new ConcurrentHashMap<Integer, FeatureSummary>();
+        final AtomicInteger discoveredCount = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        threads.add(new Thread(new Runnable() {
+            public void run() {
+                final long[] started = metrics.start();
+                try {
+                    discover(featureFiles, discovered, discoveredCount, failure);
+                } catch (final Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    metrics.end(GenerationMetrics.DISCOVERY, started);
+                    for (int i = 0; i < parserThreads; i++) {
+                        put(discovered, DiscoveredFile.END, failure);
+                    }
+                }
+            }
+        }, "cuke-discovery"));
+        for (int i = 0; i < parserThreads; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    final FeatureFileParser parser =
+                            new FeatureFileParser(featuresDirectory, cache, charset);
+                    final long[] started = metrics.start();
+                    try {
+                        DiscoveredFile next;
+                        while ((next = take(discovered, failure)) != DiscoveredFile.END
+                                && next != null) {
+                            parsed.put(next.sequence, parser.parse(next.file));
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        metrics.end(GenerationMetrics.PARSING, started);
+                    }
+                }
+            }, "cuke-parser-" + (i + 1)));
+        }
+        runAll(threads, failure);
+
+        final FeatureIndex featureIndex = new FeatureIndex();
+        for (int i = 0; i < discoveredCount.get(); i++) {
+            featureIndex.add(parsed.get(i));
+        }
+        return featureIndex;
+    }
+
+    /**
+     * Renders and writes the planned runners into the output directory.
+     */
+    public void write(final List<RunnerDefinition> runners,
+                      final RunnerRenderer renderer,
+                      final File outputDirectory) {
+        final BlockingQueue<RenderedRunner> rendered =
+                new ArrayBlockingQueue<RenderedRunner>(queueCapacity);
+        final AtomicInteger nextRunner = new AtomicInteger();
+        final AtomicInteger activeRenderers = new AtomicInteger(rendererThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < rendererThreads; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    final long[] started = metrics.start();
+                    try {
+                        int next;
+                        while (failure.get() == null
+                                && (next = nextRunner.getAndIncrement()) < runners.size()) {
+                            final RunnerDefinition runner = runners.get(next);
+                            final File outputFile = new File(outputDirectory,
+                                    runner.getOutputFileName() + ".java");
+                            put(rendered, new RenderedRunner(outputFile, renderer.render(runner)),
+                                    failure);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        metrics.end(GenerationMetrics.RENDERING, started);
+                        if (activeRenderers.decrementAndGet() == 0) {
+                            for (int w = 0; w < writerThreads; w++) {
+                                put(rendered, RenderedRunner.END, failure);
+                            }
+                        }
+                    }
+                }
+            }, "cuke-renderer-" + (i + 1)));
+        }
+        for (int i = 0; i < writerThreads; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    final long[] started = metrics.start();
+                    try {
+                        RenderedRunner next;
+                        while ((next = take(rendered, failure)) != RenderedRunner.END
+                                && next != null) {
+                            writeFile(next, charset);
+                            metrics.addBytesWritten(next.file.length());
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        metrics.end(GenerationMetrics.WRITING, started);
+                    }
+                }
+            }, "cuke-writer-" + (i + 1)));
+        }
+        runAll(threads, failure);
+    }
+
+    private void discover(final Collection<File> featureFiles,
+                          final BlockingQueue<DiscoveredFile> discovered,
+                          final AtomicInteger discoveredCount,
+                          final AtomicReference<Throwable> failure) throws IOException {
+        if (!featureFiles.isEmpty()) {
+            for (final File file : featureFiles) {
+                put(discovered, new DiscoveredFile(discoveredCount.getAndIncrement(), file),
+                        failure);
+            }
+            return;
+        }
+        Files.walkFileTree(new File(featuresDirectory).toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+                if (failure.get() != null) {
+                    return FileVisitResult.TERMINATE;
+                }
+                if (attrs.isRegularFile() && path.getFileName().toString().endsWith(".feature")) {
+                    put(discovered, new DiscoveredFile(discoveredCount.getAndIncrement(),
+                            path.toFile()), failure);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void writeFile(final RenderedRunner runner, final Charset charset) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(runner.file), charset);
+            writer.write(runner.source);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error creating file "
+                    + runner.file, e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static <T> void put(final BlockingQueue<T> queue, final T item,
+                                final AtomicReference<Throwable> failure) {
+        try {
+            while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private static <T> T take(final BlockingQueue<T> queue,
+                              final AtomicReference<Throwable> failure) {
+        try {
+            T item;
+            while ((item = queue.poll(OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure.get() != null) {
+                    return null;
+                }
+            }
+            return item;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            return null;
+        }
+    }
+
+    private static void runAll(final List<Thread> threads,
+                               final AtomicReference<Throwable> failure) {
+        for (final Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        final Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static class DiscoveredFile {
+        static final DiscoveredFile END = new DiscoveredFile(-1, null);
+
+        final int sequence;
+        final File file;
+
+        DiscoveredFile(final int sequence, final File file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+    }
+
+    private static class RenderedRunner {
+        static final RenderedRunner END = new RenderedRunner(null, null);
+
+        final File file;
+        final String source;
+
+        RenderedRunner(final File file, final String source) {
+            this.file = file;
+            this.source = source;
+        }
+    }
+}
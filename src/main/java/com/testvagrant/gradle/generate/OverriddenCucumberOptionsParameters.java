@@ -15,6 +15,8 @@ public class OverriddenCucumberOptionsParameters {
     private String format;
     private boolean monochrome;
     private List<String> featurePaths = new ArrayList<String>();
+    private int shardIndex;
+    private int shardCount = 1;
 
     public OverriddenCucumberOptionsParameters setTags(final String tags) {
         this.tags = tags;
@@ -41,6 +43,16 @@ public class OverriddenCucumberOptionsParameters {
         return this;
     }
 
+    public OverriddenCucumberOptionsParameters setShardIndex(final int shardIndex) {
+        this.shardIndex = shardIndex;
+        return this;
+    }
+
+    public OverriddenCucumberOptionsParameters setShardCount(final int shardCount) {
+        this.shardCount = shardCount;
+        return this;
+    }
+
     public void overrideParametersWithCucumberOptions(final String cucumberOptions) {
         if (cucumberOptions == null || cucumberOptions.isEmpty()) {
             return;
@@ -73,6 +85,14 @@ public class OverriddenCucumberOptionsParameters {
             this.featurePaths = options.getFeaturePaths();
         }
 
+        if (options.getShardIndex() != null) {
+            this.shardIndex = options.getShardIndex();
+        }
+
+        if (options.getShardCount() != null) {
+            this.shardCount = options.getShardCount();
+        }
+
     }
 
     public boolean isStrict() {
@@ -100,4 +120,12 @@ public class OverriddenCucumberOptionsParameters {
         return featurePaths;
     }
 
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
 }
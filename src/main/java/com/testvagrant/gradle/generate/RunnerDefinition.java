@@ -0,0 +1,79 @@
+package com.testvagrant.gradle.generate;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A runner class to be generated: its name, the tag it runs and the feature locations it points
+ * at. Runner definitions are immutable so they can be rendered on any thread.
+ */
+public class RunnerDefinition {
+
+    private final String outputFileName;
+    private final String tag;
+    private final List<ScenarioLocation> locations;
+    private final int counter;
+
+    public RunnerDefinition(final String outputFileName,
+                            final String tag,
+                            final List<ScenarioLocation> locations,
+                            final int counter) {
+        this.outputFileName = outputFileName;
+        this.tag = tag;
+        this.locations = Collections.unmodifiableList(new ArrayList<ScenarioLocation>(locations));
+        this.counter = counter;
+    }
+
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    public String getClassName() {
+        return FilenameUtils.removeExtension(outputFileName);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public List<ScenarioLocation> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Identifies the runner by its tag and the identities of its locations, which stay the same
+     * when scenarios are added to or removed from other runners.
+     */
+    public String getKey() {
+        return key(tag, locations);
+    }
+
+    /**
+     * The key of a runner of the given tag and locations.
+     */
+    public static String key(final String tag, final List<ScenarioLocation> locations) {
+        final StringBuilder key = new StringBuilder(tag);
+        for (final ScenarioLocation location : locations) {
+            key.append('\n').append(location.getIdentity());
+        }
+        return key.toString();
+    }
+
+    public List<String> getFeatureLocations() {
+        final List<String> featureLocations = new ArrayList<String>(locations.size());
+        for (final ScenarioLocation location : locations) {
+            featureLocations.add(location.getLocation());
+        }
+        return featureLocations;
+    }
+
+    /**
+     * One-based position of the runner within the generation run.
+     */
+    public int getCounter() {
+        return counter;
+    }
+}
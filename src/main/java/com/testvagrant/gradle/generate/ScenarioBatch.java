@@ -0,0 +1,28 @@
+package com.testvagrant.gradle.generate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feature locations of one tag that are run together, either by one generated runner or as one
+ * entry of the work queue.
+ */
+public class ScenarioBatch {
+
+    private final String tag;
+    private final List<ScenarioLocation> locations;
+
+    public ScenarioBatch(final String tag, final List<ScenarioLocation> locations) {
+        this.tag = tag;
+        this.locations = Collections.unmodifiableList(new ArrayList<ScenarioLocation>(locations));
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public List<ScenarioLocation> getLocations() {
+        return locations;
+    }
+}
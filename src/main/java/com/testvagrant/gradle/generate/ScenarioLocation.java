@@ -0,0 +1,68 @@
+package com.testvagrant.gradle.generate;
+
+/**
+ * A feature location a runner executes: either a whole feature file or a path:line reference to
+ * one scenario or example row.
+ */
+public class ScenarioLocation {
+
+    private final String featureFileName;
+    private final String location;
+    private final String identity;
+    private final int stepCount;
+
+    public ScenarioLocation(final String featureFileName, final String location,
+                            final String identity, final int stepCount) {
+        this.featureFileName = featureFileName;
+        this.location = location;
+        this.identity = identity;
+        this.stepCount = stepCount;
+    }
+
+    /**
+     * The name of the feature file, used to name the runner class.
+     */
+    public String getFeatureFileName() {
+        return featureFileName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Names the scenario or example row by feature path and scenario name rather than by line,
+     * so it stays the same when lines above it are added or removed.
+     */
+    public String getIdentity() {
+        return identity;
+    }
+
+    /**
+     * The steps run at this location, used to estimate its duration when there is no history.
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return location.equals(((ScenarioLocation) o).location);
+    }
+
+    @Override
+    public int hashCode() {
+        return location.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return location;
+    }
+}
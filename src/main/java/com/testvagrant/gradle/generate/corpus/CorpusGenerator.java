@@ -0,0 +1,279 @@
+package com.testvagrant.gradle.generate.corpus;
+
+import gherkin.GherkinDialect;
+import gherkin.GherkinDialectProvider;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic tree of feature files for load tests and benchmarks. The same settings
+ * and seed always give the same files, and every file only depends on its own index, so any
+ * file of a large corpus can be produced on its own.
+ *
+ * <p>Scenarios are tagged {@code @tag0} to {@code @tag<n-1>}, where n is the tag cardinality;
+ * with a skew above 0 the tags follow a Zipf distribution, {@code @tag0} being the most common.
+ * A quarter of the features carry a feature-level tag as well.</p>
+ */
+public class CorpusGenerator {
+
+    private static final String[] WORDS = {"user", "basket", "order", "payment", "account",
+            "invoice", "product", "search", "address", "delivery", "coupon", "review"};
+
+    private final GherkinDialectProvider dialects = new GherkinDialectProvider();
+
+    private long seed = 42;
+    private int fileCount = 100;
+    private int filesPerDirectory = 50;
+    private int scenariosPerFile = 10;
+    private double outlineRatio = 0.2;
+    private int exampleRows = 5;
+    private int tagCardinality = 20;
+    private double tagSkew = 1.0;
+    private int tagsPerScenario = 2;
+    private double dataTableRatio = 0.2;
+    private int dataTableRows = 5;
+    private double docStringRatio = 0.1;
+    private int docStringLines = 20;
+    private double backgroundRatio = 0.5;
+    private List<String> languages = Collections.emptyList();
+    private double languageRatio = 0.0;
+
+    private double[] tagWeights;
+
+    public CorpusGenerator setSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public CorpusGenerator setFileCount(final int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    public CorpusGenerator setFilesPerDirectory(final int filesPerDirectory) {
+        this.filesPerDirectory = Math.max(1, filesPerDirectory);
+        return this;
+    }
+
+    public CorpusGenerator setScenariosPerFile(final int scenariosPerFile) {
+        this.scenariosPerFile = scenariosPerFile;
+        return this;
+    }
+
+    /**
+     * The share of scenarios written as scenario outlines, with exampleRows example rows each.
+     */
+    public CorpusGenerator setOutlineRatio(final double outlineRatio) {
+        this.outlineRatio = outlineRatio;
+        return this;
+    }
+
+    public CorpusGenerator setExampleRows(final int exampleRows) {
+        this.exampleRows = exampleRows;
+        return this;
+    }
+
+    public CorpusGenerator setTagCardinality(final int tagCardinality) {
+        this.tagCardinality = Math.max(1, tagCardinality);
+        tagWeights = null;
+        return this;
+    }
+
+    /**
+     * The exponent of the Zipf distribution of the tags; 0 for every tag being equally common.
+     */
+    public CorpusGenerator setTagSkew(final double tagSkew) {
+        this.tagSkew = tagSkew;
+        tagWeights = null;
+        return this;
+    }
+
+    public CorpusGenerator setTagsPerScenario(final int tagsPerScenario) {
+        this.tagsPerScenario = tagsPerScenario;
+        return this;
+    }
+
+    /**
+     * The share of scenarios with a data table of dataTableRows rows on one of their steps.
+     */
+    public CorpusGenerator setDataTableRatio(final double dataTableRatio) {
+        this.dataTableRatio = dataTableRatio;
+        return this;
+    }
+
+    public CorpusGenerator setDataTableRows(final int dataTableRows) {
+        this.dataTableRows = dataTableRows;
+        return this;
+    }
+
+    /**
+     * The share of scenarios with a doc string of docStringLines lines on one of their steps.
+     */
+    public CorpusGenerator setDocStringRatio(final double docStringRatio) {
+        this.docStringRatio = docStringRatio;
+        return this;
+    }
+
+    public CorpusGenerator setDocStringLines(final int docStringLines) {
+        this.docStringLines = docStringLines;
+        return this;
+    }
+
+    public CorpusGenerator setBackgroundRatio(final double backgroundRatio) {
+        this.backgroundRatio = backgroundRatio;
+        return this;
+    }
+
+    /**
+     * The languages, e.g. "fr" or "ja", that languageRatio of the files are written in, with a
+     * {@code # language:} header. The other files are in English.
+     */
+    public CorpusGenerator setLanguages(final List<String> languages, final double languageRatio) {
+        this.languages = new ArrayList<String>(languages);
+        this.languageRatio = languageRatio;
+        return this;
+    }
+
+    /**
+     * Writes all files into the directory.
+     *
+     * @return the files, by index
+     */
+    public List<File> generate(final File directory) throws IOException {
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < fileCount; i++) {
+            final File file = new File(directory, path(i));
+            FileUtils.writeStringToFile(file, feature(i), "UTF-8");
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * The path of a file relative to the corpus directory.
+     */
+    public String path(final int index) {
+        return "group" + (index / filesPerDirectory) + "/feature" + index + ".feature";
+    }
+
+    /**
+     * The content of a file.
+     */
+    public String feature(final int index) {
+        final Random random = new Random(seed ^ (index * 0x9E3779B97F4A7C15L));
+        final GherkinDialect dialect = !languages.isEmpty() && random.nextDouble() < languageRatio
+                ? dialects.getDialect(languages.get(random.nextInt(languages.size())), null)
+                : dialects.getDefaultDialect();
+        final String step = keyword(dialect.getStepKeywords());
+
+        final StringBuilder sb = new StringBuilder();
+        if (!"en".equals(dialect.getLanguage())) {
+            sb.append("# language: ").append(dialect.getLanguage()).append('\n');
+        }
+        if (random.nextDouble() < 0.25) {
+            sb.append(tag(random)).append('\n');
+        }
+        sb.append(keyword(dialect.getFeatureKeywords())).append(": Feature ").append(index)
+                .append("\n\n");
+        if (random.nextDouble() < backgroundRatio) {
+            sb.append("  ").append(keyword(dialect.getBackgroundKeywords())).append(":\n");
+            step(sb, step, "the " + word(random) + " exists");
+            sb.append('\n');
+        }
+        for (int s = 0; s < scenariosPerFile; s++) {
+            scenario(sb, random, dialect, step, s);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void scenario(final StringBuilder sb, final Random random,
+                          final GherkinDialect dialect, final String step, final int s) {
+        final int tags = Math.min(tagsPerScenario, tagCardinality);
+        if (tags > 0) {
+            sb.append("  ");
+            for (int t = 0; t < tags; t++) {
+                sb.append(t > 0 ? " " : "").append(tag(random));
+            }
+            sb.append('\n');
+        }
+        final boolean outline = random.nextDouble() < outlineRatio;
+        sb.append("  ").append(keyword(outline
+                ? dialect.getScenarioOutlineKeywords() : dialect.getScenarioKeywords()))
+                .append(": Scenario ").append(s).append('\n');
+        final String subject = word(random);
+        step(sb, step, "a " + subject + (outline ? " with <count> items" : ""));
+        if (random.nextDouble() < dataTableRatio) {
+            sb.append("      | name | value |\n");
+            for (int row = 0; row < dataTableRows; row++) {
+                sb.append("      | ").append(word(random)).append(" | ")
+                        .append(random.nextInt(1000)).append(" |\n");
+            }
+        }
+        step(sb, step, "the " + subject + " is saved");
+        if (random.nextDouble() < docStringRatio) {
+            sb.append("      \"\"\"\n");
+            for (int line = 0; line < docStringLines; line++) {
+                sb.append("      ").append(word(random)).append(' ').append(word(random))
+                        .append(' ').append(random.nextLong()).append('\n');
+            }
+            sb.append("      \"\"\"\n");
+        }
+        step(sb, step, "the " + subject + " is " + (outline ? "<state>" : "listed"));
+        if (outline) {
+            sb.append("\n    ").append(keyword(dialect.getExamplesKeywords())).append(":\n")
+                    .append("      | count | state |\n");
+            for (int row = 0; row < exampleRows; row++) {
+                sb.append("      | ").append(row + 1).append(" | ").append(word(random))
+                        .append(" |\n");
+            }
+        }
+    }
+
+    private static void step(final StringBuilder sb, final String keyword, final String text) {
+        sb.append("    ").append(keyword).append(text).append('\n');
+    }
+
+    /**
+     * The first keyword of a kind that is not the generic "* " step keyword.
+     */
+    private static String keyword(final List<String> keywords) {
+        for (final String keyword : keywords) {
+            if (!keyword.trim().equals("*")) {
+                return keyword;
+            }
+        }
+        return keywords.get(0);
+    }
+
+    private static String word(final Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private String tag(final Random random) {
+        if (tagWeights == null) {
+            final double[] weights = new double[tagCardinality];
+            double total = 0;
+            for (int k = 0; k < tagCardinality; k++) {
+                total += 1 / Math.pow(k + 1, tagSkew);
+                weights[k] = total;
+            }
+            for (int k = 0; k < tagCardinality; k++) {
+                weights[k] /= total;
+            }
+            tagWeights = weights;
+        }
+        final double draw = random.nextDouble();
+        int k = 0;
+        while (k < tagCardinality - 1 && tagWeights[k] < draw) {
+            k++;
+        }
+        return "@tag" + k;
+    }
+}
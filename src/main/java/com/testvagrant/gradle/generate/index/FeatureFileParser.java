@@ -0,0 +1,165 @@
+package com.testvagrant.gradle.generate.index;
+
+import gherkin.AstBuilder;
+import gherkin.MappedTokenScanner;
+import gherkin.Parser;
+import gherkin.TokenMatcher;
+import gherkin.ast.Background;
+import gherkin.ast.Examples;
+import gherkin.ast.Feature;
+import gherkin.ast.GherkinDocument;
+import gherkin.ast.Scenario;
+import gherkin.ast.ScenarioDefinition;
+import gherkin.ast.ScenarioOutline;
+import gherkin.ast.TableRow;
+import gherkin.ast.Tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses feature files into {@link FeatureSummary} instances. The parser and token matcher are
+ * reused between files, so an instance must not be shared between threads.
+ *
+ * <p>When a {@link FeatureSummaryCache} is given, files whose content hash is already cached are
+ * not parsed at all.</p>
+ *
+ * <p>Files are decoded in the given charset, UTF-8 unless stated otherwise.</p>
+ */
+public class FeatureFileParser {
+
+    private final String featuresDirectory;
+    private final FeatureSummaryCache cache;
+    private final Charset charset;
+    private final Parser<GherkinDocument> parser = new Parser<GherkinDocument>(new AstBuilder());
+    private final TokenMatcher matcher = new TokenMatcher();
+    private final MessageDigest digest;
+
+    public FeatureFileParser(final String featuresDirectory) {
+        this(featuresDirectory, null);
+    }
+
+    public FeatureFileParser(final String featuresDirectory, final FeatureSummaryCache cache) {
+        this(featuresDirectory, cache, Charset.forName("UTF-8"));
+    }
+
+    public FeatureFileParser(final String featuresDirectory, final FeatureSummaryCache cache,
+                             final Charset charset) {
+        this.featuresDirectory = new File(featuresDirectory).getPath();
+        this.cache = cache;
+        this.charset = charset;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public FeatureSummary parse(final File file) {
+        try {
+            final ByteBuffer content = MappedTokenScanner.read(file);
+            final String contentHash = contentHash(content);
+            final FeatureSummary cached = cache == null ? null : cache.get(contentHash);
+            if (cached != null) {
+                return new FeatureSummary(file, featurePath(file), contentHash, cached.getName(),
+                        cached.getTags(), cached.getScenarios());
+            }
+            final FeatureSummary summary = summarize(file, contentHash,
+                    parser.parse(new MappedTokenScanner(content, charset), matcher));
+            if (cache != null) {
+                cache.put(summary);
+            }
+            return summary;
+        } catch (final IOException e) {
+            throw failedToRead(file, e);
+        } catch (final RuntimeException e) {
+            throw failedToRead(file, e);
+        }
+    }
+
+    private String contentHash(final ByteBuffer content) {
+        digest.reset();
+        digest.update(charset.name().getBytes(Charset.forName("UTF-8")));
+        digest.update((byte) 0);
+        digest.update(content.duplicate());
+        final byte[] hash = digest.digest();
+        final StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (final byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private FeatureSummary summarize(final File file, final String contentHash,
+                                     final GherkinDocument gherkinDocument) {
+        final Feature feature = gherkinDocument.getFeature();
+        final List<ScenarioSummary> scenarios = new ArrayList<ScenarioSummary>();
+        int backgroundSteps = 0;
+        for (final ScenarioDefinition definition : feature.getChildren()) {
+            if (definition instanceof Background) {
+                backgroundSteps = definition.getSteps().size();
+            }
+        }
+        for (final ScenarioDefinition definition : feature.getChildren()) {
+            if (definition instanceof ScenarioOutline) {
+                final ScenarioOutline scenarioOutline = (ScenarioOutline) definition;
+                final List<Integer> exampleLines = new ArrayList<Integer>();
+                for (final Examples example : scenarioOutline.getExamples()) {
+                    if (example.getTableBody() == null) {
+                        continue;
+                    }
+                    for (final TableRow tableRow : example.getTableBody()) {
+                        exampleLines.add(tableRow.getLocation().getLine());
+                    }
+                }
+                scenarios.add(new ScenarioSummary(true, scenarioOutline.getName(),
+                        scenarioOutline.getLocation().getLine(),
+                        tagNames(scenarioOutline.getTags()), exampleLines,
+                        backgroundSteps + scenarioOutline.getSteps().size()));
+            }
+            if (definition instanceof Scenario) {
+                final Scenario scenario = (Scenario) definition;
+                scenarios.add(new ScenarioSummary(false, scenario.getName(),
+                        scenario.getLocation().getLine(), tagNames(scenario.getTags()),
+                        new ArrayList<Integer>(),
+                        backgroundSteps + scenario.getSteps().size()));
+            }
+        }
+        return new FeatureSummary(file, featurePath(file), contentHash, feature.getName(),
+                tagNames(feature.getTags()), scenarios);
+    }
+
+    /**
+     * The full file path is trimmed to only include the featuresDirectory. E.g.
+     * /myproject/src/test/resources/features/feature1.feature will be saved as
+     * features/feature1.feature
+     */
+    private String featurePath(final File file) {
+        final int start = Math.max(0, file.getPath().indexOf(featuresDirectory));
+        return file.getPath().substring(start).replace(File.separatorChar, '/');
+    }
+
+    private static List<String> tagNames(final List<Tag> tags) {
+        final List<String> names = new ArrayList<String>(tags.size());
+        for (final Tag tag : tags) {
+            names.add(tag.getName());
+        }
+        return names;
+    }
+
+    private static RuntimeException failedToRead(final File file, final Exception cause) {
+        return new RuntimeException(
+                "Failed to read contents of " + file.getPath()
+                        + ". Check Feature file syntax errors and make sure that Scenario or "
+                        + "Scenario outline are "
+                        + "tagged with at "
+                        + "least one tag.", cause);
+    }
+}
@@ -0,0 +1,91 @@
+package com.testvagrant.gradle.generate.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tag lookup over every feature file of a generation run. Features and scenarios are kept in the
+ * order they were added, so runners generated from the index come out in feature file order.
+ */
+public class FeatureIndex {
+
+    private final List<FeatureSummary> features = new ArrayList<FeatureSummary>();
+    private final Map<String, List<FeatureSummary>> featuresByTag =
+            new HashMap<String, List<FeatureSummary>>();
+    private final Map<String, List<ScenarioEntry>> scenariosByTag =
+            new HashMap<String, List<ScenarioEntry>>();
+
+    public void add(final FeatureSummary feature) {
+        features.add(feature);
+        for (final String tag : new LinkedHashSet<String>(feature.getTags())) {
+            listFor(featuresByTag, tag).add(feature);
+        }
+        for (final ScenarioSummary scenario : feature.getScenarios()) {
+            final ScenarioEntry entry = new ScenarioEntry(feature, scenario);
+            for (final String tag : new LinkedHashSet<String>(scenario.getTags())) {
+                listFor(scenariosByTag, tag).add(entry);
+            }
+        }
+    }
+
+    public List<FeatureSummary> getFeatures() {
+        return Collections.unmodifiableList(features);
+    }
+
+    public List<FeatureSummary> getFeaturesTagged(final String tag) {
+        final List<FeatureSummary> tagged = featuresByTag.get(tag);
+        return tagged == null ? Collections.<FeatureSummary>emptyList() : tagged;
+    }
+
+    public List<ScenarioEntry> getScenariosTagged(final String tag) {
+        final List<ScenarioEntry> tagged = scenariosByTag.get(tag);
+        return tagged == null ? Collections.<ScenarioEntry>emptyList() : tagged;
+    }
+
+    /**
+     * Collects the first tag of every feature, or of every scenario and outline, which is what
+     * the runners are generated for when no tags have been configured.
+     *
+     * @param featureLevel use feature tags instead of scenario tags
+     * @return the distinct tags, in the order they were first seen
+     */
+    public List<String> getPrimaryTags(final boolean featureLevel) {
+        final Set<String> tags = new LinkedHashSet<String>();
+        for (final FeatureSummary feature : features) {
+            if (featureLevel) {
+                tags.add(firstTag(feature, feature.getTags()));
+            } else {
+                for (final ScenarioSummary scenario : feature.getScenarios()) {
+                    tags.add(firstTag(feature, scenario.getTags()));
+                }
+            }
+        }
+        return new ArrayList<String>(tags);
+    }
+
+    private String firstTag(final FeatureSummary feature, final List<String> tags) {
+        if (tags.isEmpty()) {
+            throw new RuntimeException(
+                    "Failed to read contents of " + feature.getFile().getPath()
+                            + ". Check Feature file syntax errors and make sure that Scenario or "
+                            + "Scenario outline are "
+                            + "tagged with at "
+                            + "least one tag.");
+        }
+        return tags.get(0);
+    }
+
+    private static <T> List<T> listFor(final Map<String, List<T>> map, final String tag) {
+        List<T> list = map.get(tag);
+        if (list == null) {
+            list = new ArrayList<T>();
+            map.put(tag, list);
+        }
+        return list;
+    }
+}
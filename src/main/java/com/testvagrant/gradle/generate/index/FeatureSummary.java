@@ -0,0 +1,82 @@
+package com.testvagrant.gradle.generate.index;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed feature file reduced to what the generator needs, so the Gherkin AST can be dropped
+ * as soon as the file has been read.
+ */
+public class FeatureSummary {
+
+    private final File file;
+    private final String featurePath;
+    private final String contentHash;
+    private final String name;
+    private final List<String> tags;
+    private final List<ScenarioSummary> scenarios;
+
+    public FeatureSummary(final File file,
+                          final String featurePath,
+                          final String contentHash,
+                          final String name,
+                          final List<String> tags,
+                          final List<ScenarioSummary> scenarios) {
+        this.file = file;
+        this.featurePath = featurePath;
+        this.contentHash = contentHash;
+        this.name = name;
+        this.tags = Collections.unmodifiableList(tags);
+        this.scenarios = Collections.unmodifiableList(scenarios);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getFileName() {
+        return file.getName();
+    }
+
+    /**
+     * The feature file path trimmed to start at the featuresDirectory, using '/' as separator.
+     * E.g. /myproject/src/test/resources/features/feature1.feature is features/feature1.feature
+     */
+    public String getFeaturePath() {
+        return featurePath;
+    }
+
+    /**
+     * Hash of the file content and the charset it was read in.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<ScenarioSummary> getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * The steps run when the whole feature file is executed, counting every example row of
+     * an outline.
+     */
+    public int getStepCount() {
+        int steps = 0;
+        for (final ScenarioSummary scenario : scenarios) {
+            steps += scenario.isOutline()
+                    ? scenario.getStepCount() * scenario.getExampleLines().size()
+                    : scenario.getStepCount();
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,173 @@
+package com.testvagrant.gradle.generate.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of {@link FeatureSummary} content, keyed by the hash of the feature file content
+ * and charset. A file whose hash is found here does not have to be parsed again.
+ *
+ * <p>Only the entries looked up or added since the cache was loaded are saved back, so summaries
+ * of deleted or edited files drop out of the cache file on the next run.</p>
+ */
+public class FeatureSummaryCache {
+
+    private static final int MAGIC = 0x43554b45;
+    private static final int VERSION = 2;
+
+    private final File cacheFile;
+    private final Map<String, FeatureSummary> loaded =
+            new ConcurrentHashMap<String, FeatureSummary>();
+    private final Map<String, FeatureSummary> used =
+            new ConcurrentHashMap<String, FeatureSummary>();
+
+    public FeatureSummaryCache(final File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the cached summary for the given content hash, or null. The returned summary does
+     * not carry a file or feature path.
+     */
+    public FeatureSummary get(final String contentHash) {
+        final FeatureSummary summary = loaded.get(contentHash);
+        if (summary != null) {
+            used.put(contentHash, summary);
+        }
+        return summary;
+    }
+
+    public void put(final FeatureSummary summary) {
+        used.put(summary.getContentHash(), summary);
+    }
+
+    public void load() {
+        loaded.clear();
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        try {
+            final DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(cacheFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return;
+                }
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    final FeatureSummary summary = readFeature(in);
+                    loaded.put(summary.getContentHash(), summary);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            // a truncated or unreadable cache only costs a full parse
+            loaded.clear();
+        }
+    }
+
+    public void save() throws IOException {
+        cacheFile.getParentFile().mkdirs();
+        final File tempFile = new File(cacheFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(used.size());
+            for (final FeatureSummary summary : used.values()) {
+                writeFeature(out, summary);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(cacheFile)) {
+            cacheFile.delete();
+            if (!tempFile.renameTo(cacheFile)) {
+                throw new IOException("Could not replace " + cacheFile);
+            }
+        }
+    }
+
+    private static void writeFeature(final DataOutputStream out, final FeatureSummary summary)
+            throws IOException {
+        out.writeUTF(summary.getContentHash());
+        writeNullable(out, summary.getName());
+        writeStrings(out, summary.getTags());
+        out.writeInt(summary.getScenarios().size());
+        for (final ScenarioSummary scenario : summary.getScenarios()) {
+            out.writeBoolean(scenario.isOutline());
+            writeNullable(out, scenario.getName());
+            out.writeInt(scenario.getLine());
+            writeStrings(out, scenario.getTags());
+            out.writeInt(scenario.getExampleLines().size());
+            for (final Integer line : scenario.getExampleLines()) {
+                out.writeInt(line);
+            }
+            out.writeInt(scenario.getStepCount());
+        }
+    }
+
+    private static FeatureSummary readFeature(final DataInputStream in) throws IOException {
+        final String contentHash = in.readUTF();
+        final String name = readNullable(in);
+        final List<String> tags = readStrings(in);
+        final int scenarioCount = in.readInt();
+        final List<ScenarioSummary> scenarios = new ArrayList<ScenarioSummary>(scenarioCount);
+        for (int i = 0; i < scenarioCount; i++) {
+            final boolean outline = in.readBoolean();
+            final String scenarioName = readNullable(in);
+            final int line = in.readInt();
+            final List<String> scenarioTags = readStrings(in);
+            final int exampleCount = in.readInt();
+            final List<Integer> exampleLines = new ArrayList<Integer>(exampleCount);
+            for (int e = 0; e < exampleCount; e++) {
+                exampleLines.add(in.readInt());
+            }
+            final int stepCount = in.readInt();
+            scenarios.add(new ScenarioSummary(outline, scenarioName, line, scenarioTags,
+                    exampleLines, stepCount));
+        }
+        return new FeatureSummary(null, null, contentHash, name, tags, scenarios);
+    }
+
+    private static void writeStrings(final DataOutputStream out, final List<String> strings)
+            throws IOException {
+        out.writeInt(strings.size());
+        for (final String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<String> strings = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static void writeNullable(final DataOutputStream out, final String string)
+            throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static String readNullable(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
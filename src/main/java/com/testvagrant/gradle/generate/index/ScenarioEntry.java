@@ -0,0 +1,23 @@
+package com.testvagrant.gradle.generate.index;
+
+/**
+ * A scenario together with the feature file it was declared in.
+ */
+public class ScenarioEntry {
+
+    private final FeatureSummary feature;
+    private final ScenarioSummary scenario;
+
+    public ScenarioEntry(final FeatureSummary feature, final ScenarioSummary scenario) {
+        this.feature = feature;
+        this.scenario = scenario;
+    }
+
+    public FeatureSummary getFeature() {
+        return feature;
+    }
+
+    public ScenarioSummary getScenario() {
+        return scenario;
+    }
+}
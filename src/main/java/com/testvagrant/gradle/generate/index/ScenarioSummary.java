@@ -0,0 +1,60 @@
+package com.testvagrant.gradle.generate.index;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a Scenario or Scenario Outline that runner generation needs: its tags, the line
+ * it starts on, for outlines the line of every example row, and the number of steps it runs.
+ */
+public class ScenarioSummary {
+
+    private final boolean outline;
+    private final String name;
+    private final int line;
+    private final List<String> tags;
+    private final List<Integer> exampleLines;
+    private final int stepCount;
+
+    public ScenarioSummary(final boolean outline,
+                           final String name,
+                           final int line,
+                           final List<String> tags,
+                           final List<Integer> exampleLines,
+                           final int stepCount) {
+        this.outline = outline;
+        this.name = name;
+        this.line = line;
+        this.tags = Collections.unmodifiableList(tags);
+        this.exampleLines = Collections.unmodifiableList(exampleLines);
+        this.stepCount = stepCount;
+    }
+
+    public boolean isOutline() {
+        return outline;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<Integer> getExampleLines() {
+        return exampleLines;
+    }
+
+    /**
+     * The steps run for one execution of the scenario or one example row, including the steps
+     * of the feature's background.
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+}
@@ -3,4 +3,9 @@ package com.testvagrant.gradle.generate.name;
 public interface ClassNamingScheme {
 
     String generate(final String featureFileName);
+
+    /**
+     * Names the runner with the given number instead of the next one of the counter.
+     */
+    String generate(final String featureFileName, final int counter);
 }
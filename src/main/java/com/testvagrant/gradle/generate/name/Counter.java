@@ -3,4 +3,10 @@ package com.testvagrant.gradle.generate.name;
 public interface Counter {
 
     int next();
+
+    /**
+     * The number of the runner with the given key. Counters that number runners in sequence
+     * ignore the key.
+     */
+    int next(final String key);
 }
@@ -33,4 +33,8 @@ public class FeatureFileClassNamingScheme implements ClassNamingScheme {
         //        return String.format(className+"%02dIT.java",counter.next());
     }
 
+    public String generate(final String featureFileName, final int counter) {
+        return generate(featureFileName);
+    }
+
 }
@@ -0,0 +1,51 @@
+package com.testvagrant.gradle.generate.name;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Numbers runners by a hash of their key, so a runner keeps its number when runners are added
+ * or removed before it. Numbers have up to eight digits; a key whose number is already taken in
+ * this run gets the next free one.
+ */
+public class KeyHashCounter implements Counter {
+
+    private static final int RANGE = 100000000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Set<Integer> taken = new HashSet<Integer>();
+    private int counter = 1;
+
+    /**
+     * Numbers without a key are handed out in sequence.
+     */
+    public int next() {
+        return take(counter++);
+    }
+
+    public int next(final String key) {
+        return take(hash(key));
+    }
+
+    private int take(final int number) {
+        int free = number;
+        while (!taken.add(free)) {
+            free = (free + 1) % RANGE;
+        }
+        return free;
+    }
+
+    private static int hash(final String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF_8));
+            final int bits = ((digest[0] & 0xff) << 24) | ((digest[1] & 0xff) << 16)
+                    | ((digest[2] & 0xff) << 8) | (digest[3] & 0xff);
+            return (bits & Integer.MAX_VALUE) % RANGE;
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,10 +2,14 @@ package com.testvagrant.gradle.generate.name;
 
 public class OneUpCounter implements Counter {
 
-    private static int counter = 1;
+    private int counter = 1;
 
     public int next() {
         return counter++;
     }
 
+    public int next(final String key) {
+        return next();
+    }
+
 }
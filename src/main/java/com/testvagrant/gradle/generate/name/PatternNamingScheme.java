@@ -16,10 +16,14 @@ public class PatternNamingScheme implements ClassNamingScheme {
     }
 
     public String generate(final String featureFileName) {
+        return generate(featureFileName, counter.next());
+    }
+
+    public String generate(final String featureFileName, final int counter) {
 
         String className =
             pattern.replace("{f}", featureFileNamingScheme.generate(featureFileName));
-        className = className.replace("{c}", String.format("%02d", counter.next()));
+        className = className.replace("{c}", String.format("%02d", counter));
         return className;
     }
 
@@ -7,4 +7,8 @@ public class SimpleClassNamingScheme implements ClassNamingScheme {
     public String generate(final String featureFileName) {
         return String.format("Parallel%02dIT.java", fileCounter++);
     }
+
+    public String generate(final String featureFileName, final int counter) {
+        return String.format("Parallel%02dIT.java", counter);
+    }
 }
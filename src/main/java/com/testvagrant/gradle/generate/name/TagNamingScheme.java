@@ -11,4 +11,9 @@ public class TagNamingScheme implements ClassNamingScheme {
         String tagName = tag.replaceAll("@", "");
         return String.format("Tag_" + tagName + "_%02dIT.java", fileCounter++);
     }
+
+    public String generate(String tag, int counter) {
+        String tagName = tag.replaceAll("@", "");
+        return String.format("Tag_" + tagName + "_%02dIT.java", counter);
+    }
 }
@@ -0,0 +1,272 @@
+package com.testvagrant.gradle.generate.schedule;
+
+import gherkin.deps.com.google.gson.stream.JsonReader;
+import gherkin.deps.com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scenario durations taken from the Cucumber JSON reports of a previous run. Durations are
+ * keyed by feature path and scenario line, the same path:line form runners are generated with;
+ * background steps and hooks are counted towards the scenario they ran for.
+ *
+ * <p>Reports are read with a streaming reader, so large reports are never held in memory.
+ * Files that are not Cucumber JSON reports are skipped.</p>
+ */
+public class DurationHistory {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Map<String, Map<Integer, Long>> durations =
+            new HashMap<String, Map<Integer, Long>>();
+    private long totalNanos;
+    private long totalSteps;
+
+    /**
+     * Reads every JSON report under the given directory. A missing directory gives an empty
+     * history.
+     *
+     * @throws IOException if the directory cannot be walked
+     */
+    public static DurationHistory load(final File reportDirectory) throws IOException {
+        final DurationHistory history = new DurationHistory();
+        if (!reportDirectory.isDirectory()) {
+            return history;
+        }
+        Files.walkFileTree(reportDirectory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && path.getFileName().toString().endsWith(".json")) {
+                    history.read(path.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return history;
+    }
+
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    /**
+     * The recorded duration, in nanoseconds, of a path:line location, or of all recorded
+     * scenarios of the feature for a plain feature path. Null when nothing was recorded.
+     */
+    public Long getDuration(final String location) {
+        final int colon = location.lastIndexOf(':');
+        if (colon > 0 && isDigits(location.substring(colon + 1))) {
+            final Map<Integer, Long> lines = durations.get(location.substring(0, colon));
+            return lines == null ? null
+                    : lines.get(Integer.valueOf(location.substring(colon + 1)));
+        }
+        final Map<Integer, Long> lines = durations.get(location);
+        if (lines == null) {
+            return null;
+        }
+        long sum = 0;
+        for (final Long duration : lines.values()) {
+            sum += duration;
+        }
+        return sum;
+    }
+
+    /**
+     * The mean recorded duration of a step, or 1 when there is no history, so that step
+     * counts still compare among themselves.
+     */
+    public double getNanosPerStep() {
+        return totalSteps == 0 || totalNanos == 0 ? 1 : (double) totalNanos / totalSteps;
+    }
+
+    private void read(final File report) {
+        try {
+            final JsonReader reader = new JsonReader(
+                    new InputStreamReader(new FileInputStream(report), UTF_8));
+            try {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    return;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readFeature(reader);
+                }
+                reader.endArray();
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            // not a Cucumber report, or one cut short by a killed fork
+        } catch (final RuntimeException e) {
+            // malformed JSON is reported as an unchecked exception by some readers
+        }
+    }
+
+    private void readFeature(final JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        String uri = null;
+        List<long[]> scenarios = new ArrayList<long[]>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("uri") && reader.peek() == JsonToken.STRING) {
+                uri = reader.nextString();
+            } else if (name.equals("elements") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                scenarios = readElements(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (uri == null) {
+            return;
+        }
+        for (final long[] scenario : scenarios) {
+            record(normalize(uri), (int) scenario[0], scenario[1], scenario[2]);
+        }
+    }
+
+    /**
+     * @return line, nanoseconds and step count of each scenario, backgrounds folded in
+     */
+    private List<long[]> readElements(final JsonReader reader) throws IOException {
+        final List<long[]> scenarios = new ArrayList<long[]>();
+        long backgroundNanos = 0;
+        long backgroundSteps = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            int line = -1;
+            String type = null;
+            long nanos = 0;
+            long steps = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (name.equals("line") && reader.peek() == JsonToken.NUMBER) {
+                    line = reader.nextInt();
+                } else if (name.equals("type") && reader.peek() == JsonToken.STRING) {
+                    type = reader.nextString();
+                } else if ((name.equals("steps") || name.equals("before")
+                        || name.equals("after")) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    final long[] results = readResults(reader);
+                    nanos += results[0];
+                    if (name.equals("steps")) {
+                        steps += results[1];
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if ("background".equals(type)) {
+                backgroundNanos = nanos;
+                backgroundSteps = steps;
+            } else if (line > 0) {
+                scenarios.add(new long[]{line, nanos + backgroundNanos, steps + backgroundSteps});
+                backgroundNanos = 0;
+                backgroundSteps = 0;
+            }
+        }
+        reader.endArray();
+        return scenarios;
+    }
+
+    /**
+     * @return the summed result durations and the number of entries of a steps or hooks array
+     */
+    private long[] readResults(final JsonReader reader) throws IOException {
+        long nanos = 0;
+        long count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            count++;
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("result")
+                        && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("duration")
+                                && reader.peek() == JsonToken.NUMBER) {
+                            nanos += reader.nextLong();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return new long[]{nanos, count};
+    }
+
+    /**
+     * Keeps the longest duration seen for a scenario; a scenario that was re-run shows up in
+     * several reports.
+     */
+    private void record(final String featurePath, final int line, final long nanos,
+                        final long steps) {
+        Map<Integer, Long> lines = durations.get(featurePath);
+        if (lines == null) {
+            lines = new HashMap<Integer, Long>();
+            durations.put(featurePath, lines);
+        }
+        final Long previous = lines.get(line);
+        if (previous == null || previous < nanos) {
+            lines.put(line, nanos);
+        }
+        totalNanos += nanos;
+        totalSteps += steps;
+    }
+
+    private static String normalize(final String uri) {
+        String path = uri.replace('\\', '/');
+        if (path.startsWith("classpath:")) {
+            path = path.substring("classpath:".length());
+        }
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path;
+    }
+
+    private static boolean isDigits(final String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package com.testvagrant.gradle.generate.schedule;
+
+import com.testvagrant.gradle.generate.ScenarioLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs feature locations into runners so that the expected wall time of every runner is
+ * about the same, using longest-processing-time-first: locations are taken longest first and
+ * each goes to the runner with the least work so far.
+ *
+ * <p>Durations come from the {@link DurationHistory}; a location without history is estimated
+ * from its step count and the mean step duration of the history.</p>
+ */
+public class DurationScheduler {
+
+    private final DurationHistory history;
+
+    public DurationScheduler(final DurationHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Expected duration of a location in nanoseconds, or in steps when there is no history.
+     */
+    public double estimate(final ScenarioLocation location) {
+        final Long recorded = history.getDuration(location.getLocation());
+        if (recorded != null) {
+            return recorded;
+        }
+        return Math.max(1, location.getStepCount()) * history.getNanosPerStep();
+    }
+
+    public double estimate(final List<ScenarioLocation> locations) {
+        double total = 0;
+        for (final ScenarioLocation location : locations) {
+            total += estimate(location);
+        }
+        return total;
+    }
+
+    /**
+     * Splits a number of runners among groups of locations that cannot share a runner, in
+     * proportion to the expected duration of each group. Every non-empty group gets at least
+     * one runner and no group gets more runners than it has locations.
+     */
+    public int[] shareRunners(final List<List<ScenarioLocation>> groups, final int runnerCount) {
+        final double[] durations = new double[groups.size()];
+        double total = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            durations[i] = estimate(groups.get(i));
+            total += durations[i];
+        }
+        final int[] shares = new int[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            final int size = groups.get(i).size();
+            if (size == 0) {
+                continue;
+            }
+            final long share = total == 0 ? 1 : Math.round(runnerCount * durations[i] / total);
+            shares[i] = (int) Math.max(1, Math.min(size, share));
+        }
+        return shares;
+    }
+
+    /**
+     * Packs the locations into at most the given number of runners. The locations of each
+     * runner keep the order they were given in, and runners without locations are dropped.
+     */
+    public List<List<ScenarioLocation>> pack(final List<ScenarioLocation> locations,
+                                             final int runnerCount) {
+        final int bins = Math.max(1, Math.min(runnerCount, locations.size()));
+        final int[] assigned = assign(locations, bins);
+        final List<List<ScenarioLocation>> runners = new ArrayList<List<ScenarioLocation>>();
+        for (int b = 0; b < bins; b++) {
+            final List<ScenarioLocation> runner = new ArrayList<ScenarioLocation>();
+            for (int i = 0; i < locations.size(); i++) {
+                if (assigned[i] == b) {
+                    runner.add(locations.get(i));
+                }
+            }
+            if (!runner.isEmpty()) {
+                runners.add(runner);
+            }
+        }
+        return runners;
+    }
+
+    /**
+     * Assigns each location to one of the given number of bins, longest first to the bin with
+     * the least work so far.
+     *
+     * @return the bin of each location, by position
+     */
+    public int[] assign(final List<ScenarioLocation> locations, final int binCount) {
+        final double[] estimates = new double[locations.size()];
+        final List<Integer> longestFirst = new ArrayList<Integer>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            estimates[i] = estimate(locations.get(i));
+            longestFirst.add(i);
+        }
+        // stable sort, so equal estimates stay in feature file order
+        Collections.sort(longestFirst, new Comparator<Integer>() {
+            public int compare(final Integer a, final Integer b) {
+                return Double.compare(estimates[b], estimates[a]);
+            }
+        });
+
+        final double[] loads = new double[Math.max(1, binCount)];
+        final int[] assigned = new int[locations.size()];
+        for (final Integer index : longestFirst) {
+            int lightest = 0;
+            for (int b = 1; b < loads.length; b++) {
+                if (loads[b] < loads[lightest]) {
+                    lightest = b;
+                }
+            }
+            loads[lightest] += estimates[index];
+            assigned[index] = lightest;
+        }
+        return assigned;
+    }
+}
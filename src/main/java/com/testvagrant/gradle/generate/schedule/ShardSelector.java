@@ -0,0 +1,106 @@
+package com.testvagrant.gradle.generate.schedule;
+
+import com.testvagrant.gradle.generate.ScenarioLocation;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the feature locations one node runs when a suite is split across several machines.
+ *
+ * <p>By default every location is assigned by rendezvous hashing of its identity: each shard
+ * scores the location and the highest score wins. The score only depends on the location and
+ * the shard, so adding or removing a scenario never moves any other scenario, and adding a
+ * shard only moves the scenarios the new shard wins. When a duration history is given, the
+ * locations are instead packed across the shards by expected duration; every node must then see
+ * the same history.</p>
+ */
+public class ShardSelector {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int shardIndex;
+    private final int shardCount;
+
+    public ShardSelector(final int shardIndex, final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1, was " + shardCount);
+        }
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shardIndex must be between 0 and "
+                    + (shardCount - 1) + ", was " + shardIndex);
+        }
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * The locations, among those given, that belong to this shard.
+     *
+     * @param scheduler balances the shards by duration, or null to hash identities
+     */
+    public Set<ScenarioLocation> select(final List<ScenarioLocation> locations,
+                                        final DurationScheduler scheduler) {
+        final List<ScenarioLocation> distinct = new ArrayList<ScenarioLocation>(
+                new LinkedHashSet<ScenarioLocation>(locations));
+        final Set<ScenarioLocation> selected = new HashSet<ScenarioLocation>();
+        if (scheduler != null) {
+            final int[] shards = scheduler.assign(distinct, shardCount);
+            for (int i = 0; i < distinct.size(); i++) {
+                if (shards[i] == shardIndex) {
+                    selected.add(distinct.get(i));
+                }
+            }
+        } else {
+            for (final ScenarioLocation location : distinct) {
+                if (shardOf(location.getIdentity(), shardCount) == shardIndex) {
+                    selected.add(location);
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The shard, from 0 to shardCount - 1, the given identity is hashed to.
+     */
+    public static int shardOf(final String identity, final int shardCount) {
+        final long hash = hash(identity);
+        int winner = 0;
+        long best = Long.MIN_VALUE;
+        for (int shard = 0; shard < shardCount; shard++) {
+            final long score = mix(hash ^ (shard * 0x9e3779b97f4a7c15L));
+            if (score > best) {
+                best = score;
+                winner = shard;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, so shards agree across JVMs and platforms.
+     */
+    private static long hash(final String identity) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : identity.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,75 @@
+package com.testvagrant.gradle.report;
+
+import com.testvagrant.gradle.CukePluginExtension;
+import net.masterthought.cucumber.ReportBuilder;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the consolidated report of the default run and of every retry once all test forks
+ * are done, instead of every re-runner class rebuilding all of them when it finishes. Also
+ * merges all reports into one, keeping the last attempt of each scenario.
+ */
+public class ConsolidateReportsTask extends DefaultTask {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    @TaskAction
+    public void consolidateReports() throws TaskExecutionException {
+        final File outputDir = getCucumberOutputDir();
+        try {
+            final ReportIndex index = ReportIndex.scan(outputDir);
+            if (index.isEmpty()) {
+                log.info("No Cucumber reports found under " + outputDir);
+                return;
+            }
+            final File consolidatedDir = new File(outputDir, ReportIndex.CONSOLIDATED_REPORT_DIR);
+            index.save(new File(consolidatedDir, ReportIndex.INDEX_FILE));
+            if (getExtension().isMergeReports()) {
+                final File merged = new File(consolidatedDir, ReportIndex.MERGED_REPORT_FILE);
+                final int scenarios = new ReportMerger(getLogger())
+                        .merge(index.getReportsInRunOrder(), merged);
+                getLogger().lifecycle("Merged the last attempt of " + scenarios
+                        + " scenarios into " + merged);
+            }
+            if (!getExtension().isUseReRun()) {
+                return;
+            }
+            for (final Map.Entry<Integer, List<File>> run : index.getRuns().entrySet()) {
+                final String runName = ReportIndex.runName(run.getKey());
+                final List<String> jsonReports = new ArrayList<String>();
+                for (final File report : run.getValue()) {
+                    jsonReports.add(report.getAbsolutePath());
+                }
+                final ReportBuilder reportBuilder = new ReportBuilder(jsonReports,
+                        new File(consolidatedDir, runName), "", runName, "cucumber-reporting",
+                        true, true, true, false, false, "", false);
+                reportBuilder.generateReports();
+                getLogger().lifecycle(runName + " consolidated report generated from "
+                        + jsonReports.size() + " reports under " + consolidatedDir);
+            }
+        } catch (Exception e) {
+            log.error("", e);
+            throw new TaskExecutionException(this, new Exception("Exception occured while consolidating reports", e));
+        }
+    }
+
+    @Internal
+    public CukePluginExtension getExtension() {
+        return getProject().getExtensions().findByType(CukePluginExtension.class);
+    }
+
+    @Internal
+    public File getCucumberOutputDir() {
+        return getProject().file(getExtension().getCucumberOutputDir());
+    }
+}
@@ -0,0 +1,130 @@
+package com.testvagrant.gradle.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Cucumber JSON reports under the output directory, grouped by the run that wrote them:
+ * run 0 is the default run, run N the N-th retry (cucumberN.json or cucumberN-M.json).
+ * Built from a single walk of the directory, skipping the consolidated reports.
+ */
+public class ReportIndex {
+
+    public static final String CONSOLIDATED_REPORT_DIR = "Consolidated-Report";
+    public static final String INDEX_FILE = "report-index.txt";
+    public static final String MERGED_REPORT_FILE = "cucumber-merged.json";
+
+    private static final Pattern RUN_JSON = Pattern.compile("cucumber(\\d+)(-\\d+)?\\.json");
+    private static final String[] RUN_NAMES = {"Default_Run", "First_Re-Run", "Second_Re-Run",
+            "Third_Re-Run", "Fourth_Re-Run", "Fifth_Re-Run"};
+
+    private final SortedMap<Integer, List<File>> runs = new TreeMap<Integer, List<File>>();
+
+    public static ReportIndex scan(final File outputDirectory) throws IOException {
+        final ReportIndex index = new ReportIndex();
+        if (!outputDirectory.isDirectory()) {
+            return index;
+        }
+        final Path consolidated = new File(outputDirectory, CONSOLIDATED_REPORT_DIR).toPath();
+        Files.walkFileTree(outputDirectory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir,
+                                                     final BasicFileAttributes attrs) {
+                return dir.equals(consolidated)
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+                final String name = path.getFileName().toString();
+                if (attrs.isRegularFile() && name.endsWith(".json")) {
+                    index.add(runOf(name), path.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (final List<File> reports : index.runs.values()) {
+            Collections.sort(reports);
+        }
+        return index;
+    }
+
+    /**
+     * The run a report file belongs to, from its name.
+     */
+    public static int runOf(final String fileName) {
+        final Matcher matcher = RUN_JSON.matcher(fileName);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * The name of a run's consolidated report directory, e.g. Default_Run or First_Re-Run.
+     */
+    public static String runName(final int run) {
+        return run < RUN_NAMES.length ? RUN_NAMES[run] : "Re-Run_" + run;
+    }
+
+    private void add(final int run, final File report) {
+        List<File> reports = runs.get(run);
+        if (reports == null) {
+            reports = new ArrayList<File>();
+            runs.put(run, reports);
+        }
+        reports.add(report);
+    }
+
+    public boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    public SortedMap<Integer, List<File>> getRuns() {
+        return Collections.unmodifiableSortedMap(runs);
+    }
+
+    /**
+     * All reports, the default run first and then every retry in order.
+     */
+    public List<File> getReportsInRunOrder() {
+        final List<File> reports = new ArrayList<File>();
+        for (final List<File> run : runs.values()) {
+            reports.addAll(run);
+        }
+        return reports;
+    }
+
+    /**
+     * Writes the index as one run name and report path per line.
+     */
+    public void save(final File file) throws IOException {
+        file.getParentFile().mkdirs();
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")));
+        try {
+            for (final Map.Entry<Integer, List<File>> run : runs.entrySet()) {
+                for (final File report : run.getValue()) {
+                    writer.write(runName(run.getKey()) + "\t" + report.getPath() + "\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
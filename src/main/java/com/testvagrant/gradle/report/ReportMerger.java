@@ -0,0 +1,458 @@
+package com.testvagrant.gradle.report;
+
+import gherkin.deps.com.google.gson.stream.JsonReader;
+import gherkin.deps.com.google.gson.stream.JsonToken;
+import gherkin.deps.com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges Cucumber JSON reports into one report, keeping only the last attempt of every
+ * scenario, so a scenario that failed and passed on a retry shows up once, as passed.
+ *
+ * <p>The reports are streamed twice and never held in memory. The first pass only records,
+ * per scenario, where its last attempt is, and where each feature occurs; the second pass writes
+ * one feature per uri, with the elements of those attempts in report order, each with the
+ * background it ran with. The other fields of a feature are taken from its first occurrence
+ * with a remaining scenario. Features without any remaining scenario are left out.</p>
+ */
+public class ReportMerger {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int OPEN_REPORTS = 32;
+
+    private final Logger logger;
+
+    public ReportMerger() {
+        this(LoggerFactory.getLogger(ReportMerger.class));
+    }
+
+    /**
+     * @param logger receives a warning for every report that is cut short
+     */
+    public ReportMerger(final Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Merges the reports into the output file.
+     *
+     * @param reports the reports in attempt order; a later report overrides an earlier one
+     * @return the number of scenarios in the merged report
+     */
+    public int merge(final List<File> reports, final File output) throws IOException {
+        final int[] scenarios = new int[1];
+        final List<List<BitSet>> kept = new ArrayList<List<BitSet>>();
+        final Map<String, List<int[]>> features = selectLastAttempts(reports, kept, scenarios);
+        output.getParentFile().mkdirs();
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(output), UTF_8)));
+        final Cursors cursors = new Cursors(reports);
+        try {
+            writer.beginArray();
+            for (final List<int[]> occurrences : features.values()) {
+                copyFeature(occurrences, kept, cursors, writer);
+            }
+            writer.endArray();
+        } finally {
+            cursors.close();
+            writer.close();
+        }
+        return scenarios[0];
+    }
+
+    /**
+     * First pass: fills in the positions, per report and feature, of the elements to keep.
+     *
+     * @param kept      receives the elements to keep of every feature of every report
+     * @param scenarios receives the number of distinct scenarios
+     * @return the report and position of every occurrence of each feature, by uri in order of
+     * first occurrence
+     */
+    private Map<String, List<int[]>> selectLastAttempts(final List<File> reports,
+                                                        final List<List<BitSet>> kept,
+                                                        final int[] scenarios)
+            throws IOException {
+        final Map<String, int[]> lastAttempts = new HashMap<String, int[]>();
+        final Map<String, List<int[]>> features = new LinkedHashMap<String, List<int[]>>();
+        final List<List<BitSet>> backgrounds = new ArrayList<List<BitSet>>();
+        for (int file = 0; file < reports.size(); file++) {
+            final List<BitSet> fileBackgrounds = new ArrayList<BitSet>();
+            backgrounds.add(fileBackgrounds);
+            kept.add(new ArrayList<BitSet>());
+            final List<BitSet> fileKept = kept.get(file);
+            final JsonReader reader = open(reports.get(file));
+            try {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    continue;
+                }
+                reader.beginArray();
+                for (int feature = 0; reader.hasNext(); feature++) {
+                    final BitSet featureBackgrounds = new BitSet();
+                    final List<String> scenarioKeys = new ArrayList<String>();
+                    final String uri = scanFeature(reader, featureBackgrounds, scenarioKeys);
+                    fileBackgrounds.add(featureBackgrounds);
+                    fileKept.add(new BitSet());
+                    List<int[]> occurrences = features.get(uri);
+                    if (occurrences == null) {
+                        occurrences = new ArrayList<int[]>();
+                        features.put(uri, occurrences);
+                    }
+                    occurrences.add(new int[]{file, feature});
+                    for (int element = 0; element < scenarioKeys.size(); element++) {
+                        if (scenarioKeys.get(element) != null) {
+                            lastAttempts.put(uri + ":" + scenarioKeys.get(element),
+                                    new int[]{file, feature, element});
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                // a report cut short by a killed fork: its complete features are still used
+                logger.warn("Skipping the rest of " + reports.get(file) + ": "
+                        + e.getMessage());
+            } catch (final RuntimeException e) {
+                logger.warn("Skipping the rest of " + reports.get(file) + ": "
+                        + e.getMessage());
+            } finally {
+                reader.close();
+            }
+        }
+        for (final int[] position : lastAttempts.values()) {
+            final BitSet featureKept = kept.get(position[0]).get(position[1]);
+            featureKept.set(position[2]);
+            if (position[2] > 0
+                    && backgrounds.get(position[0]).get(position[1]).get(position[2] - 1)) {
+                featureKept.set(position[2] - 1);
+            }
+        }
+        scenarios[0] = lastAttempts.size();
+        return features;
+    }
+
+    /**
+     * Reads one feature, noting which elements are backgrounds and the key of every scenario.
+     *
+     * @return the uri of the feature
+     */
+    private String scanFeature(final JsonReader reader, final BitSet backgrounds,
+                               final List<String> scenarioKeys) throws IOException {
+        String uri = "";
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return uri;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("uri") && reader.peek() == JsonToken.STRING) {
+                uri = reader.nextString();
+            } else if (name.equals("elements") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                for (int element = 0; reader.hasNext(); element++) {
+                    final String[] typeAndKey = scanElement(reader);
+                    if ("background".equals(typeAndKey[0])) {
+                        backgrounds.set(element);
+                    }
+                    scenarioKeys.add("background".equals(typeAndKey[0]) ? null : typeAndKey[1]);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return uri;
+    }
+
+    /**
+     * @return the type of the element and the key of a scenario, its id and line
+     */
+    private String[] scanElement(final JsonReader reader) throws IOException {
+        final String[] typeAndKey = new String[2];
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return typeAndKey;
+        }
+        String id = "";
+        String line = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("type") && reader.peek() == JsonToken.STRING) {
+                typeAndKey[0] = reader.nextString();
+            } else if (name.equals("id") && reader.peek() == JsonToken.STRING) {
+                id = reader.nextString();
+            } else if (name.equals("line") && reader.peek() == JsonToken.NUMBER) {
+                line = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        typeAndKey[1] = line + ":" + id;
+        return typeAndKey;
+    }
+
+    /**
+     * Second pass: writes one feature with the kept elements of all its occurrences.
+     */
+    private void copyFeature(final List<int[]> occurrences, final List<List<BitSet>> kept,
+                             final Cursors cursors, final JsonWriter writer)
+            throws IOException {
+        final List<int[]> withKept = new ArrayList<int[]>();
+        for (final int[] occurrence : occurrences) {
+            if (!kept.get(occurrence[0]).get(occurrence[1]).isEmpty()) {
+                withKept.add(occurrence);
+            }
+        }
+        if (withKept.isEmpty()) {
+            return;
+        }
+        final int[] first = withKept.get(0);
+        final Cursor cursor = cursors.take(first[0], first[1]);
+        try {
+            final JsonReader reader = cursor.reader;
+            reader.beginObject();
+            writer.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                writer.name(name);
+                if (name.equals("elements") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    writer.beginArray();
+                    copyElements(reader, kept.get(first[0]).get(first[1]), writer);
+                    for (final int[] occurrence : withKept.subList(1, withKept.size())) {
+                        copyElementsOf(occurrence, kept, cursors, writer);
+                    }
+                    writer.endArray();
+                } else {
+                    copy(reader, writer);
+                }
+            }
+            reader.endObject();
+            writer.endObject();
+        } finally {
+            cursors.release(cursor);
+        }
+    }
+
+    /**
+     * Copies the kept elements of another occurrence of the feature being written.
+     */
+    private void copyElementsOf(final int[] occurrence, final List<List<BitSet>> kept,
+                                final Cursors cursors, final JsonWriter writer)
+            throws IOException {
+        final Cursor cursor = cursors.take(occurrence[0], occurrence[1]);
+        try {
+            final JsonReader reader = cursor.reader;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("elements")
+                        && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    copyElements(reader, kept.get(occurrence[0]).get(occurrence[1]), writer);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            cursors.release(cursor);
+        }
+    }
+
+    /**
+     * Copies the kept elements of the array the reader is at into the array being written.
+     */
+    private static void copyElements(final JsonReader reader, final BitSet featureKept,
+                                     final JsonWriter writer) throws IOException {
+        reader.beginArray();
+        for (int element = 0; reader.hasNext(); element++) {
+            if (featureKept.get(element)) {
+                copy(reader, writer);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Copies the next value, whatever its type, from the reader to the writer.
+     */
+    private static void copy(final JsonReader reader, final JsonWriter writer)
+            throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.value(new RawNumber(reader.nextString()));
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                reader.skipValue();
+                break;
+        }
+    }
+
+    private static JsonReader open(final File report) throws IOException {
+        return new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(report), UTF_8)));
+    }
+
+    /**
+     * A report being read, positioned before one of its features.
+     */
+    private static class Cursor {
+        private final int file;
+        private final JsonReader reader;
+        private int feature;
+
+        Cursor(final int file, final JsonReader reader) {
+            this.file = file;
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * Keeps the most recently used reports open where the last feature was read from them, so
+     * the features of a report written in order are read in one pass over the report.
+     */
+    private static class Cursors {
+        private final List<File> reports;
+        private final Map<Integer, Cursor> open =
+                new LinkedHashMap<Integer, Cursor>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<Integer, Cursor> eldest) {
+                        if (size() <= OPEN_REPORTS) {
+                            return false;
+                        }
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                };
+
+        Cursors(final List<File> reports) {
+            this.reports = reports;
+        }
+
+        /**
+         * A reader of the report positioned at the feature, to be handed back with
+         * {@link #release} once the feature has been read.
+         */
+        Cursor take(final int file, final int feature) throws IOException {
+            Cursor cursor = open.remove(file);
+            if (cursor != null && cursor.feature > feature) {
+                closeQuietly(cursor);
+                cursor = null;
+            }
+            if (cursor == null) {
+                cursor = new Cursor(file, open(reports.get(file)));
+                cursor.reader.beginArray();
+            }
+            for (; cursor.feature < feature; cursor.feature++) {
+                cursor.reader.skipValue();
+            }
+            return cursor;
+        }
+
+        void release(final Cursor cursor) {
+            cursor.feature++;
+            final Cursor replaced = open.put(cursor.file, cursor);
+            if (replaced != null) {
+                closeQuietly(replaced);
+            }
+        }
+
+        void close() {
+            for (final Cursor cursor : open.values()) {
+                closeQuietly(cursor);
+            }
+            open.clear();
+        }
+
+        private static void closeQuietly(final Cursor cursor) {
+            try {
+                cursor.reader.close();
+            } catch (final IOException e) {
+                // only read from
+            }
+        }
+    }
+
+    /**
+     * A number written exactly as it was read, so durations keep all their digits.
+     */
+    private static class RawNumber extends Number {
+        private final String value;
+
+        RawNumber(final String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int intValue() {
+            return (int) doubleValue();
+        }
+
+        @Override
+        public long longValue() {
+            return (long) doubleValue();
+        }
+
+        @Override
+        public float floatValue() {
+            return (float) doubleValue();
+        }
+
+        @Override
+        public double doubleValue() {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package gherkin;
+
+import java.util.List;
+
+/**
+ * A line of a source read into one buffer, kept as offsets into the buffer. Strings are only
+ * cut out of the buffer for the text a token keeps.
+ */
+public class BufferedGherkinLine implements IGherkinLine {
+    private final String buffer;
+    private final int start;
+    private final int trimmedStart;
+    private final int end;
+
+    /**
+     * @param buffer the whole source
+     * @param start  the offset of the first character of the line
+     * @param end    the offset after the last character of the line, without its line break
+     */
+    public BufferedGherkinLine(String buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        int i = start;
+        while (i < end && Character.isWhitespace(buffer.charAt(i))) {
+            i++;
+        }
+        this.trimmedStart = i;
+    }
+
+    @Override
+    public Integer indent() {
+        // whitespace is never a surrogate, so its characters are its symbols
+        return trimmedStart - start;
+    }
+
+    @Override
+    public void detach() {
+
+    }
+
+    @Override
+    public String getLineText(int indentToRemove) {
+        if (indentToRemove < 0 || indentToRemove > indent()) {
+            return buffer.substring(trimmedStart, end);
+        }
+        return buffer.substring(start + indentToRemove, end);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return trimmedStart == end;
+    }
+
+    @Override
+    public char firstChar() {
+        return trimmedStart == end ? 0 : buffer.charAt(trimmedStart);
+    }
+
+    @Override
+    public boolean startsWith(String prefix) {
+        return end - trimmedStart >= prefix.length() && buffer.startsWith(prefix, trimmedStart);
+    }
+
+    @Override
+    public String getRestTrimmed(int length) {
+        int from = trimmedStart + length;
+        if (from > end) {
+            throw new StringIndexOutOfBoundsException(end - trimmedStart - length);
+        }
+        int to = end;
+        while (from < to && buffer.charAt(from) <= ' ') {
+            from++;
+        }
+        while (from < to && buffer.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return buffer.substring(from, to);
+    }
+
+    @Override
+    public List<GherkinLineSpan> getTags() {
+        return GherkinLineLexer.tags(buffer, start, trimmedStart, end);
+    }
+
+    @Override
+    public boolean startsWithTitleKeyword(String keyword) {
+        int keywordLength = keyword.length();
+        return end - trimmedStart > keywordLength
+            && buffer.startsWith(keyword, trimmedStart)
+            && buffer.startsWith(GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR,
+            trimmedStart + keywordLength);
+    }
+
+    @Override
+    public List<GherkinLineSpan> getTableCells() {
+        return GherkinLineLexer.tableCells(buffer, start, trimmedStart, end);
+    }
+}
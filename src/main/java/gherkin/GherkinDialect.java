@@ -1,49 +1,72 @@
 package gherkin;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * The keywords of a language. Immutable, so the dialects of {@link GherkinDialectProvider} are
+ * shared by all documents and threads.
+ */
 public class GherkinDialect {
-    private final Map<String, List<String>> keywords;
-    private String language;
+    private final String language;
+    private final List<String> featureKeywords;
+    private final List<String> scenarioKeywords;
+    private final List<String> stepKeywords;
+    private final List<String> backgroundKeywords;
+    private final List<String> scenarioOutlineKeywords;
+    private final List<String> examplesKeywords;
+    private final KeywordMatcher keywordMatcher;
 
     public GherkinDialect(String language, Map<String, List<String>> keywords) {
         this.language = language;
-        this.keywords = keywords;
+        this.featureKeywords = copy(keywords, "feature");
+        this.scenarioKeywords = copy(keywords, "scenario");
+        List<String> steps = new ArrayList<>();
+        for (String type : new String[]{"given", "when", "then", "and", "but"}) {
+            steps.addAll(keywords.get(type));
+        }
+        this.stepKeywords = Collections.unmodifiableList(steps);
+        this.backgroundKeywords = copy(keywords, "background");
+        this.scenarioOutlineKeywords = copy(keywords, "scenarioOutline");
+        this.examplesKeywords = copy(keywords, "examples");
+        this.keywordMatcher = new KeywordMatcher(this);
     }
 
     public List<String> getFeatureKeywords() {
-        return keywords.get("feature");
+        return featureKeywords;
     }
 
     public List<String> getScenarioKeywords() {
-        return keywords.get("scenario");
+        return scenarioKeywords;
     }
 
     public List<String> getStepKeywords() {
-        List<String> result = new ArrayList<>();
-        result.addAll(keywords.get("given"));
-        result.addAll(keywords.get("when"));
-        result.addAll(keywords.get("then"));
-        result.addAll(keywords.get("and"));
-        result.addAll(keywords.get("but"));
-        return result;
+        return stepKeywords;
     }
 
     public List<String> getBackgroundKeywords() {
-        return keywords.get("background");
+        return backgroundKeywords;
     }
 
     public List<String> getScenarioOutlineKeywords() {
-        return keywords.get("scenarioOutline");
+        return scenarioOutlineKeywords;
     }
 
     public List<String> getExamplesKeywords() {
-        return keywords.get("examples");
+        return examplesKeywords;
     }
 
     public String getLanguage() {
         return language;
     }
+
+    public KeywordMatcher getKeywordMatcher() {
+        return keywordMatcher;
+    }
+
+    private static List<String> copy(Map<String, List<String>> keywords, String type) {
+        return Collections.unmodifiableList(new ArrayList<>(keywords.get(type)));
+    }
 }
@@ -8,9 +8,12 @@ import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class GherkinDialectProvider implements IGherkinDialectProvider {
     private static Map<String, Map<String, List<String>>> DIALECTS;
+    private static final ConcurrentMap<String, GherkinDialect> CACHE = new ConcurrentHashMap<>();
     private final String defaultDialectName;
 
     static {
@@ -37,13 +40,25 @@ public class GherkinDialectProvider implements IGherkinDialectProvider {
         return getDialect(defaultDialectName, null);
     }
 
+    /**
+     * The dialect of a language, built on first use and shared by all providers.
+     */
     @Override
     public GherkinDialect getDialect(String language, Location location) {
+        if (language == null) {
+            throw new ParserException.NoSuchLanguageException(language, location);
+        }
+        GherkinDialect dialect = CACHE.get(language);
+        if (dialect != null) {
+            return dialect;
+        }
         Map<String, List<String>> map = DIALECTS.get(language);
         if (map == null) {
             throw new ParserException.NoSuchLanguageException(language, location);
         }
 
-        return new GherkinDialect(language, map);
+        dialect = new GherkinDialect(language, map);
+        GherkinDialect existing = CACHE.putIfAbsent(language, dialect);
+        return existing != null ? existing : dialect;
     }
 }
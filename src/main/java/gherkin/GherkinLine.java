@@ -1,8 +1,6 @@
 package gherkin;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 public class GherkinLine implements IGherkinLine {
     private final String lineText;
@@ -37,6 +35,11 @@ public class GherkinLine implements IGherkinLine {
         return trimmedLineText.length() == 0;
     }
 
+    @Override
+    public char firstChar() {
+        return trimmedLineText.isEmpty() ? 0 : trimmedLineText.charAt(0);
+    }
+
     @Override
     public boolean startsWith(String prefix) {
         return trimmedLineText.startsWith(prefix);
@@ -49,7 +52,7 @@ public class GherkinLine implements IGherkinLine {
 
     @Override
     public List<GherkinLineSpan> getTags() {
-        return getSpans("\\s+");
+        return GherkinLineLexer.tags(lineText, 0, trimmedStart(), lineText.length());
     }
 
     @Override
@@ -57,65 +60,16 @@ public class GherkinLine implements IGherkinLine {
         int textLength = text.length();
         return trimmedLineText.length() > textLength
             && trimmedLineText.startsWith(text)
-            && trimmedLineText.substring(textLength,
-            textLength + GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR.length())
-                .equals(GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR);
-        // TODO aslak: extract startsWithFrom method for clarity
+            && trimmedLineText.startsWith(GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR,
+            textLength);
     }
 
     @Override
     public List<GherkinLineSpan> getTableCells() {
-        List<GherkinLineSpan> lineSpans = new ArrayList<GherkinLineSpan>();
-        StringBuilder cell = new StringBuilder();
-        boolean beforeFirst = true;
-        int startCol = 0;
-        for (int col = 0; col < trimmedLineText.length(); col++) {
-            char c = trimmedLineText.charAt(col);
-            if (c == '|') {
-                if (beforeFirst) {
-                    // Skip the first empty span
-                    beforeFirst = false;
-                } else {
-                    int contentStart = 0;
-                    while (contentStart < cell.length()
-                        && Character.isWhitespace(cell.charAt(contentStart))) {
-                        contentStart++;
-                    }
-                    if (contentStart == cell.length()) {
-                        contentStart = 0;
-                    }
-                    lineSpans.add(new GherkinLineSpan(indent()
-                        + startCol + contentStart + 2, cell.toString().trim()));
-                    startCol = col;
-                }
-                cell = new StringBuilder();
-            } else if (c == '\\') {
-                col++;
-                c = trimmedLineText.charAt(col);
-                if (c == 'n') {
-                    cell.append('\n');
-                } else {
-                    if (c != '|' && c != '\\') {
-                        cell.append('\\');
-                    }
-                    cell.append(c);
-                }
-            } else {
-                cell.append(c);
-            }
-        }
-
-        return lineSpans;
+        return GherkinLineLexer.tableCells(lineText, 0, trimmedStart(), lineText.length());
     }
 
-    private List<GherkinLineSpan> getSpans(String delimiter) {
-        List<GherkinLineSpan> lineSpans = new ArrayList<GherkinLineSpan>();
-        Scanner scanner = new Scanner(trimmedLineText).useDelimiter(delimiter);
-        while (scanner.hasNext()) {
-            String cell = scanner.next();
-            int column = scanner.match().start() + indent() + 1;
-            lineSpans.add(new GherkinLineSpan(column, cell));
-        }
-        return lineSpans;
+    private int trimmedStart() {
+        return lineText.length() - trimmedLineText.length();
     }
 }
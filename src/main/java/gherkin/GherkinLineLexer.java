@@ -0,0 +1,134 @@
+package gherkin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits tag lines and table rows in one scan over the characters of a line, given as offsets
+ * into a larger text. Strings are only cut out for the tags and cell values, and a cell is only
+ * unescaped when it contains a backslash.
+ */
+final class GherkinLineLexer {
+
+    private GherkinLineLexer() {
+    }
+
+    /**
+     * The tags of a line: the runs of characters between spaces, tabs and line breaks.
+     *
+     * @param lineStart the offset of the line, for the one-based columns of the tags
+     * @param from      the offset of the first character after the indent
+     * @param to        the offset after the last character of the line
+     */
+    static List<GherkinLineSpan> tags(String text, int lineStart, int from, int to) {
+        List<GherkinLineSpan> tags = new ArrayList<>();
+        int i = from;
+        while (i < to) {
+            while (i < to && isSeparator(text.charAt(i))) {
+                i++;
+            }
+            int tagStart = i;
+            while (i < to && !isSeparator(text.charAt(i))) {
+                i++;
+            }
+            if (i > tagStart) {
+                tags.add(new GherkinLineSpan(tagStart - lineStart + 1,
+                    text.substring(tagStart, i)));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * The cells of a table row: the trimmed text between two pipes. "\|", "\\" and "\n" are
+     * unescaped; a backslash before any other character is kept.
+     *
+     * @param lineStart the offset of the line, for the one-based columns of the cells
+     * @param from      the offset of the first character after the indent
+     * @param to        the offset after the last character of the line
+     */
+    static List<GherkinLineSpan> tableCells(String text, int lineStart, int from, int to) {
+        List<GherkinLineSpan> cells = new ArrayList<>();
+        boolean beforeFirst = true;
+        boolean escaped = false;
+        int columnPipe = from;
+        int cellStart = from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                if (++i == to) {
+                    throw new StringIndexOutOfBoundsException(i - from);
+                }
+                escaped = true;
+            } else if (c == '|') {
+                if (beforeFirst) {
+                    beforeFirst = false;
+                } else {
+                    cells.add(escaped
+                        ? escapedCell(text, lineStart, columnPipe, cellStart, i)
+                        : cell(text, lineStart, columnPipe, cellStart, i));
+                    columnPipe = i;
+                }
+                cellStart = i + 1;
+                escaped = false;
+            }
+        }
+        return cells;
+    }
+
+    private static GherkinLineSpan cell(String text, int lineStart, int columnPipe, int from,
+                                        int to) {
+        int contentStart = from;
+        while (contentStart < to && Character.isWhitespace(text.charAt(contentStart))) {
+            contentStart++;
+        }
+        int column = columnPipe - lineStart + 2
+            + (contentStart == to ? 0 : contentStart - from);
+        int valueStart = from;
+        int valueEnd = to;
+        while (valueStart < valueEnd && text.charAt(valueStart) <= ' ') {
+            valueStart++;
+        }
+        while (valueStart < valueEnd && text.charAt(valueEnd - 1) <= ' ') {
+            valueEnd--;
+        }
+        return new GherkinLineSpan(column, text.substring(valueStart, valueEnd));
+    }
+
+    private static GherkinLineSpan escapedCell(String text, int lineStart, int columnPipe,
+                                               int from, int to) {
+        StringBuilder cell = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                c = text.charAt(++i);
+                if (c == 'n') {
+                    cell.append('\n');
+                } else {
+                    if (c != '|' && c != '\\') {
+                        cell.append('\\');
+                    }
+                    cell.append(c);
+                }
+            } else {
+                cell.append(c);
+            }
+        }
+        int contentStart = 0;
+        while (contentStart < cell.length() && Character.isWhitespace(cell.charAt(contentStart))) {
+            contentStart++;
+        }
+        if (contentStart == cell.length()) {
+            contentStart = 0;
+        }
+        return new GherkinLineSpan(columnPipe - lineStart + 2 + contentStart,
+            cell.toString().trim());
+    }
+
+    /**
+     * The characters of the regular expression \s.
+     */
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -11,6 +11,11 @@ public interface IGherkinLine {
 
     boolean isEmpty();
 
+    /**
+     * The first character after the indent, or 0 for an empty line.
+     */
+    char firstChar();
+
     boolean startsWith(String prefix);
 
     String getRestTrimmed(int length);
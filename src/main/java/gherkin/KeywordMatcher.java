@@ -0,0 +1,130 @@
+package gherkin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The keywords of a dialect, grouped by their first character, so a line is only compared
+ * with the keywords it can start with. Built along with the dialect, see
+ * {@link GherkinDialect#getKeywordMatcher()}.
+ */
+public final class KeywordMatcher {
+    public static final int FEATURE = 1;
+    public static final int BACKGROUND = 1 << 1;
+    public static final int SCENARIO = 1 << 2;
+    public static final int SCENARIO_OUTLINE = 1 << 3;
+    public static final int EXAMPLES = 1 << 4;
+
+    private final char[] titleFirstChars;
+    private final String[][] titleKeywords;
+    private final int[][] titleTypes;
+    private final char[] stepFirstChars;
+    private final String[][] stepKeywords;
+
+    KeywordMatcher(GherkinDialect dialect) {
+        Map<String, Integer> titles = new LinkedHashMap<>();
+        addTitles(titles, dialect.getFeatureKeywords(), FEATURE);
+        addTitles(titles, dialect.getBackgroundKeywords(), BACKGROUND);
+        addTitles(titles, dialect.getScenarioKeywords(), SCENARIO);
+        addTitles(titles, dialect.getScenarioOutlineKeywords(), SCENARIO_OUTLINE);
+        addTitles(titles, dialect.getExamplesKeywords(), EXAMPLES);
+        Map<Character, List<String>> titleBuckets = buckets(titles.keySet());
+        titleFirstChars = firstChars(titleBuckets);
+        titleKeywords = new String[titleFirstChars.length][];
+        titleTypes = new int[titleFirstChars.length][];
+        for (int i = 0; i < titleFirstChars.length; i++) {
+            List<String> bucket = titleBuckets.get(titleFirstChars[i]);
+            titleKeywords[i] = bucket.toArray(new String[bucket.size()]);
+            titleTypes[i] = new int[bucket.size()];
+            for (int k = 0; k < bucket.size(); k++) {
+                titleTypes[i][k] = titles.get(bucket.get(k));
+            }
+        }
+
+        // steps are tried in dialect order, as a keyword may be a prefix of another one
+        Map<Character, List<String>> stepBuckets = buckets(dialect.getStepKeywords());
+        stepFirstChars = firstChars(stepBuckets);
+        stepKeywords = new String[stepFirstChars.length][];
+        for (int i = 0; i < stepFirstChars.length; i++) {
+            List<String> bucket = stepBuckets.get(stepFirstChars[i]);
+            stepKeywords[i] = bucket.toArray(new String[bucket.size()]);
+        }
+    }
+
+    /**
+     * The keyword of one of the types the line starts with, followed by the title separator.
+     *
+     * @param types the types to match, or'ed together
+     * @return the keyword, without the separator, or null
+     */
+    public String matchTitleKeyword(IGherkinLine line, int types) {
+        int bucket = Arrays.binarySearch(titleFirstChars, line.firstChar());
+        if (bucket < 0) {
+            return null;
+        }
+        String[] keywords = titleKeywords[bucket];
+        for (int k = 0; k < keywords.length; k++) {
+            if ((titleTypes[bucket][k] & types) != 0
+                && line.startsWithTitleKeyword(keywords[k])) {
+                return keywords[k];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first step keyword of the dialect that the line starts with.
+     *
+     * @return the keyword, or null
+     */
+    public String matchStepKeyword(IGherkinLine line) {
+        int bucket = Arrays.binarySearch(stepFirstChars, line.firstChar());
+        if (bucket < 0) {
+            return null;
+        }
+        for (String keyword : stepKeywords[bucket]) {
+            if (line.startsWith(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    private static void addTitles(Map<String, Integer> titles, List<String> keywords, int type) {
+        for (String keyword : keywords) {
+            Integer types = titles.get(keyword);
+            titles.put(keyword, types == null ? type : types | type);
+        }
+    }
+
+    private static Map<Character, List<String>> buckets(Iterable<String> keywords) {
+        Map<Character, List<String>> buckets = new TreeMap<>();
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            List<String> bucket = buckets.get(keyword.charAt(0));
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.put(keyword.charAt(0), bucket);
+            }
+            if (!bucket.contains(keyword)) {
+                bucket.add(keyword);
+            }
+        }
+        return buckets;
+    }
+
+    private static char[] firstChars(Map<Character, List<String>> buckets) {
+        char[] chars = new char[buckets.size()];
+        int i = 0;
+        for (Character c : buckets.keySet()) {
+            chars[i++] = c;
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,104 @@
+package gherkin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scans the bytes of a source in a given charset. Files are read with a single bulk read, or
+ * memory-mapped when they are large. Content that is pure ASCII, the common case for feature
+ * files, is copied into the line buffer without running a decoder whenever the charset is
+ * ASCII-compatible.
+ */
+public class MappedTokenScanner implements Parser.ITokenScanner {
+    static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final TokenScanner lines;
+
+    public MappedTokenScanner(File file, Charset charset) throws IOException {
+        this(read(file), charset);
+    }
+
+    public MappedTokenScanner(ByteBuffer bytes, Charset charset) {
+        this.lines = new TokenScanner(decode(bytes, charset));
+    }
+
+    @Override
+    public Token read() {
+        return lines.read();
+    }
+
+    /**
+     * The content of a file, mapped when it is at least {@link #MAP_THRESHOLD} bytes long.
+     */
+    public static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) == -1) {
+                    break;
+                }
+            }
+            bytes.flip();
+            return bytes;
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes, without moving the position of the buffer. Malformed input
+     * is replaced, as by {@link java.io.InputStreamReader}.
+     */
+    public static String decode(ByteBuffer bytes, Charset charset) {
+        ByteBuffer content = bytes.duplicate();
+        if (isAsciiCompatible(charset) && isAscii(content)) {
+            return new String(array(content), StandardCharsets.ISO_8859_1);
+        }
+        if (charset.equals(StandardCharsets.UTF_8) && content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + content.position(),
+                content.remaining(), StandardCharsets.UTF_8);
+        }
+        return charset.decode(content).toString();
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Whether no byte has its high bit set, testing eight bytes at a time.
+     */
+    private static boolean isAscii(ByteBuffer content) {
+        int i = content.position();
+        int limit = content.limit();
+        long bits = 0;
+        for (; i + 8 <= limit; i += 8) {
+            bits |= content.getLong(i);
+        }
+        for (; i < limit; i++) {
+            bits |= content.get(i);
+        }
+        return (bits & HIGH_BITS) == 0;
+    }
+
+    private static byte[] array(ByteBuffer content) {
+        if (content.hasArray() && content.arrayOffset() == 0 && content.position() == 0
+            && content.remaining() == content.array().length) {
+            return content.array();
+        }
+        byte[] array = new byte[content.remaining()];
+        content.duplicate().get(array);
+        return array;
+    }
+}
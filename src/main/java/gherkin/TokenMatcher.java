@@ -112,43 +112,43 @@ public class TokenMatcher implements gherkin.Parser.ITokenMatcher {
 
     @Override
     public boolean match_FeatureLine(Token token) {
-        return matchTitleLine(token, gherkin.Parser.TokenType.FeatureLine, currentDialect
-            .getFeatureKeywords());
+        return matchTitleLine(token, gherkin.Parser.TokenType.FeatureLine, KeywordMatcher
+            .FEATURE);
     }
 
     @Override
     public boolean match_BackgroundLine(Token token) {
-        return matchTitleLine(token, gherkin.Parser.TokenType.BackgroundLine, currentDialect
-            .getBackgroundKeywords());
+        return matchTitleLine(token, gherkin.Parser.TokenType.BackgroundLine, KeywordMatcher
+            .BACKGROUND);
     }
 
     @Override
     public boolean match_ScenarioLine(Token token) {
-        return matchTitleLine(token, gherkin.Parser.TokenType.ScenarioLine, currentDialect
-            .getScenarioKeywords());
+        return matchTitleLine(token, gherkin.Parser.TokenType.ScenarioLine, KeywordMatcher
+            .SCENARIO);
     }
 
     @Override
     public boolean match_ScenarioOutlineLine(Token token) {
-        return matchTitleLine(token, gherkin.Parser.TokenType.ScenarioOutlineLine, currentDialect
-            .getScenarioOutlineKeywords());
+        return matchTitleLine(token, gherkin.Parser.TokenType.ScenarioOutlineLine, KeywordMatcher
+            .SCENARIO_OUTLINE);
     }
 
     @Override
     public boolean match_ExamplesLine(Token token) {
-        return matchTitleLine(token, gherkin.Parser.TokenType.ExamplesLine, currentDialect
-            .getExamplesKeywords());
-    }
-
-    private boolean matchTitleLine(Token token, gherkin.Parser.TokenType tokenType, List<String>
-        keywords) {
-        for (String keyword : keywords) {
-            if (token.line.startsWithTitleKeyword(keyword)) {
-                String title = token.line.getRestTrimmed(keyword.length()
-                    + GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR.length());
-                setTokenMatched(token, tokenType, title, keyword, null, null);
-                return true;
-            }
+        return matchTitleLine(token, gherkin.Parser.TokenType.ExamplesLine, KeywordMatcher
+            .EXAMPLES);
+    }
+
+    private boolean matchTitleLine(Token token, gherkin.Parser.TokenType tokenType, int
+        keywordType) {
+        String keyword = currentDialect.getKeywordMatcher().matchTitleKeyword(token.line,
+            keywordType);
+        if (keyword != null) {
+            String title = token.line.getRestTrimmed(keyword.length()
+                + GherkinLanguageConstants.TITLE_KEYWORD_SEPARATOR.length());
+            setTokenMatched(token, tokenType, title, keyword, null, null);
+            return true;
         }
         return false;
     }
@@ -185,14 +185,12 @@ public class TokenMatcher implements gherkin.Parser.ITokenMatcher {
 
     @Override
     public boolean match_StepLine(Token token) {
-        List<String> keywords = currentDialect.getStepKeywords();
-        for (String keyword : keywords) {
-            if (token.line.startsWith(keyword)) {
-                String stepText = token.line.getRestTrimmed(keyword.length());
-                setTokenMatched(token, gherkin.Parser.TokenType.StepLine, stepText, keyword,
-                    null, null);
-                return true;
-            }
+        String keyword = currentDialect.getKeywordMatcher().matchStepKeyword(token.line);
+        if (keyword != null) {
+            String stepText = token.line.getRestTrimmed(keyword.length());
+            setTokenMatched(token, gherkin.Parser.TokenType.StepLine, stepText, keyword,
+                null, null);
+            return true;
         }
         return false;
     }
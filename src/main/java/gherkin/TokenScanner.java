@@ -2,31 +2,58 @@ package gherkin;
 
 import gherkin.ast.Location;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
+/**
+ * Reads the whole source into one buffer and hands out its lines as offsets into it. Lines
+ * end at "\n", "\r" or "\r\n", as with {@link java.io.BufferedReader#readLine()}.
+ */
 public class TokenScanner implements Parser.ITokenScanner {
 
-    private final BufferedReader reader;
+    private final String buffer;
+    private int position;
     private int lineNumber;
 
     public TokenScanner(String source) {
-        this(new StringReader(source));
+        this.buffer = source;
     }
 
     public TokenScanner(Reader source) {
-        this.reader = new BufferedReader(source);
+        this(read(source));
     }
 
     @Override
     public Token read() {
+        Location location = new Location(++lineNumber, 0);
+        if (position >= buffer.length()) {
+            return new Token(null, location);
+        }
+        int start = position;
+        int end = start;
+        while (end < buffer.length() && buffer.charAt(end) != '\n'
+            && buffer.charAt(end) != '\r') {
+            end++;
+        }
+        position = end;
+        if (position < buffer.length() && buffer.charAt(position) == '\r') {
+            position++;
+        }
+        if (position < buffer.length() && buffer.charAt(position) == '\n') {
+            position++;
+        }
+        return new Token(new BufferedGherkinLine(buffer, start, end), location);
+    }
+
+    private static String read(Reader source) {
         try {
-            String line = reader.readLine();
-            Location location = new Location(++lineNumber, 0);
-            return line == null ? new Token(null, location) : new Token(new GherkinLine(line),
-                location);
+            StringBuilder sb = new StringBuilder();
+            char[] chars = new char[8192];
+            int read;
+            while ((read = source.read(chars)) != -1) {
+                sb.append(chars, 0, read);
+            }
+            return sb.toString();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
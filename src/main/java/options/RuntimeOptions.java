@@ -21,6 +21,8 @@ public class RuntimeOptions {
     private boolean monochrome = false;
     private final List<String> featurePaths = new ArrayList<String>();
     private SnippetType snippetType;
+    private Integer shardIndex;
+    private Integer shardCount;
 
     public RuntimeOptions(final String argv) {
         this(Shellwords.parse(argv));
@@ -62,6 +64,10 @@ public class RuntimeOptions {
                 monochrome = !arg.startsWith("--no-");
             } else if (arg.equals("--snippets")) {
                 this.snippetType = SnippetType.fromString(args.remove(0));
+            } else if (arg.equals("--shard-index")) {
+                shardIndex = Integer.valueOf(args.remove(0).trim());
+            } else if (arg.equals("--shard-count")) {
+                shardCount = Integer.valueOf(args.remove(0).trim());
             } else if (!arg.equals("--name") && !arg.equals("-n")) {
                 if (arg.startsWith("-")) {
                    // ignore
@@ -124,6 +130,20 @@ public class RuntimeOptions {
         return featurePaths;
     }
 
+    /**
+     * @return the --shard-index option, or null if it was not given
+     */
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    /**
+     * @return the --shard-count option, or null if it was not given
+     */
+    public Integer getShardCount() {
+        return shardCount;
+    }
+
     private void stripLinesFromFeaturePaths(List<String> featurePaths) {
         ArrayList newPaths = new ArrayList();
         Iterator var3 = featurePaths.iterator();
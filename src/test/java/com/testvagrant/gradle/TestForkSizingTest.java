@@ -0,0 +1,73 @@
+package com.testvagrant.gradle;
+
+import com.testvagrant.gradle.generate.GenerationManifest;
+import com.testvagrant.gradle.generate.RunnerDefinition;
+import com.testvagrant.gradle.generate.ScenarioLocation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestForkSizingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void forksAreLimitedByRunnersProcessorsAndMemory() {
+        assertEquals(3, TestForkSizing.forks(3, 8, 0, 0));
+        assertEquals(8, TestForkSizing.forks(20, 8, 0, 0));
+        assertEquals(4, TestForkSizing.forks(20, 8, 4096, 1024));
+        assertEquals(8, TestForkSizing.forks(20, 8, 4096, 0));
+        assertEquals(1, TestForkSizing.forks(20, 8, 512, 1024));
+        assertEquals(1, TestForkSizing.forks(0, 8, 0, 0));
+    }
+
+    @Test
+    public void forksAreOnlyReplacedWhenTheirShareExceedsTheLimit() {
+        assertEquals(0, TestForkSizing.forkEvery(20, 4, 0));
+        assertEquals(0, TestForkSizing.forkEvery(20, 4, 5));
+        assertEquals(5, TestForkSizing.forkEvery(21, 4, 5));
+        assertEquals(2, TestForkSizing.forkEvery(3, 1, 2));
+    }
+
+    @Test
+    public void plannedRunnersFollowTheGenerationMode() {
+        final CukePluginExtension extension = new CukePluginExtension();
+        assertEquals(0, TestForkSizing.plannedRunners(extension, 8));
+
+        extension.setTargetRunnerCount(12);
+        assertEquals(12, TestForkSizing.plannedRunners(extension, 8));
+
+        extension.setThreadedRunner(true);
+        assertEquals(1, TestForkSizing.plannedRunners(extension, 8));
+
+        extension.setWorkStealing(true);
+        assertEquals(8, TestForkSizing.plannedRunners(extension, 8));
+
+        extension.setWorkStealingRunners(3);
+        assertEquals(3, TestForkSizing.plannedRunners(extension, 8));
+    }
+
+    @Test
+    public void generatedRunnersAreCountedFromTheManifest() throws IOException {
+        final File file = new File(folder.getRoot(), GenerationManifest.FILE_NAME);
+        assertEquals(0, TestForkSizing.generatedRunners(file));
+
+        final GenerationManifest manifest = new GenerationManifest();
+        for (int i = 1; i <= 5; i++) {
+            manifest.add(new RunnerDefinition("Parallel" + i + "IT", "@tag",
+                    Collections.singletonList(new ScenarioLocation("a.feature",
+                            "features/a.feature:" + i, "features/a.feature:scenario " + i, 1)),
+                    i), "fingerprint");
+        }
+        manifest.save(file);
+
+        assertEquals(5, TestForkSizing.generatedRunners(file));
+    }
+}
@@ -0,0 +1,208 @@
+package com.testvagrant.gradle.generate;
+
+import com.testvagrant.gradle.CukePluginExtension;
+import com.testvagrant.gradle.generate.corpus.CorpusGenerator;
+import com.testvagrant.gradle.generate.index.FeatureFileParser;
+import com.testvagrant.gradle.generate.index.FeatureSummary;
+import com.testvagrant.gradle.generate.index.ScenarioSummary;
+import com.testvagrant.gradle.generate.name.ClassNamingSchemeFactory;
+import com.testvagrant.gradle.generate.name.OneUpCounter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Generates runners for a synthetic corpus and checks them through the generation manifest,
+ * which records the tag and feature locations of every runner whatever the template.
+ */
+public class CucumberItGeneratorTest {
+
+    private static final String[] TAGS = {"@tag1", "@tag2"};
+    private static final long OLD = 1000000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File features;
+    private File output;
+    private CorpusGenerator corpus;
+
+    @Before
+    public void generateCorpus() throws IOException {
+        features = folder.newFolder("features");
+        output = folder.newFolder("runners");
+        corpus = new CorpusGenerator()
+                .setSeed(7)
+                .setFileCount(12)
+                .setFilesPerDirectory(5)
+                .setScenariosPerFile(6)
+                .setOutlineRatio(0)
+                .setTagCardinality(4);
+        corpus.generate(features);
+    }
+
+    @Test
+    public void everyTaggedScenarioIsInExactlyOneRunnerOfItsTag() throws IOException {
+        generate(false);
+
+        final Map<String, List<String>> runners = readManifest();
+        for (final String tag : TAGS) {
+            final List<String> generated = new ArrayList<String>();
+            for (final List<String> runner : runners.values()) {
+                if (runner.get(0).equals(tag)) {
+                    generated.addAll(runner.subList(1, runner.size()));
+                }
+            }
+            final List<String> expected = taggedLocations(tag);
+            assertFalse(expected.isEmpty());
+            Collections.sort(generated);
+            assertEquals(tag, expected, generated);
+        }
+    }
+
+    @Test
+    public void incrementalRunLeavesUnchangedRunnersUntouched() throws IOException {
+        generate(true);
+        final Map<String, List<String>> before = readManifest();
+        age(before.keySet());
+
+        generate(true);
+
+        assertEquals(before, readManifest());
+        for (final String runner : before.keySet()) {
+            assertEquals(runner, OLD, runnerFile(runner).lastModified());
+        }
+    }
+
+    @Test
+    public void addingAFeatureFileKeepsTheNamesOfTheOtherRunners() throws IOException {
+        generate(true);
+        final Map<String, List<String>> before = readManifest();
+        age(before.keySet());
+
+        corpus.setFileCount(13).generate(features);
+        generate(true);
+
+        final Map<String, List<String>> after = readManifest();
+        assertTrue(after.size() > before.size());
+        for (final Map.Entry<String, List<String>> runner : before.entrySet()) {
+            assertEquals(runner.getValue(), after.get(runner.getKey()));
+            assertEquals(runner.getKey(), OLD, runnerFile(runner.getKey()).lastModified());
+        }
+    }
+
+    @Test
+    public void threadedRunnerGetsEveryTaggedScenarioOnceFromTheBatchFile() throws IOException {
+        final CukePluginExtension extension = extension(false);
+        extension.setThreadedRunner(true);
+        extension.setScenariosPerRunner(3);
+        generate(extension);
+
+        assertEquals(1, readManifest().size());
+        final List<String> lines = Files.readAllLines(
+                new File(output, CucumberItGenerator.WORK_QUEUE_FILE).toPath(),
+                Charset.forName("UTF-8"));
+        for (final String tag : TAGS) {
+            final List<String> queued = new ArrayList<String>();
+            for (final String line : lines.subList(1, lines.size())) {
+                final String[] batch = line.split("\t");
+                if (batch[0].equals(tag)) {
+                    assertTrue(line, batch.length - 1 <= 3);
+                    for (final String location : Arrays.asList(batch).subList(1, batch.length)) {
+                        queued.add(location.substring("classpath:".length()));
+                    }
+                }
+            }
+            Collections.sort(queued);
+            assertEquals(tag, taggedLocations(tag), queued);
+        }
+    }
+
+    private void generate(final boolean incremental) {
+        generate(extension(incremental));
+    }
+
+    private CukePluginExtension extension(final boolean incremental) {
+        final CukePluginExtension extension = new CukePluginExtension();
+        extension.setFeaturesDirectory(features.getPath());
+        extension.setTags(TAGS[0] + "," + TAGS[1]);
+        extension.setOutputDirectory(output.getPath());
+        extension.setIncremental(incremental);
+        return extension;
+    }
+
+    private void generate(final CukePluginExtension extension) {
+        final OverriddenCucumberOptionsParameters overriddenParameters =
+                new OverriddenCucumberOptionsParameters()
+                        .setTags(extension.getTags())
+                        .setGlue(extension.getGlue())
+                        .setStrict(true)
+                        .setFormat("json")
+                        .setMonochrome(false);
+        new CucumberItGenerator(extension, overriddenParameters,
+                new ClassNamingSchemeFactory(new OneUpCounter()).create("simple", null),
+                new OverriddenRerunOptionsParameters()).generateCucumberItFiles(output);
+    }
+
+    /**
+     * The tag and then the feature locations of every runner, by runner.
+     */
+    private Map<String, List<String>> readManifest() throws IOException {
+        final Map<String, List<String>> runners = new LinkedHashMap<String, List<String>>();
+        final List<String> lines = Files.readAllLines(
+                new File(output, GenerationManifest.FILE_NAME).toPath(),
+                Charset.forName("UTF-8"));
+        for (final String line : lines.subList(1, lines.size())) {
+            final String[] fields = line.split("\t", -1);
+            final List<String> runner = new ArrayList<String>();
+            runner.add(fields[2]);
+            Collections.addAll(runner, fields[3].split(","));
+            runners.put(fields[0], runner);
+        }
+        return runners;
+    }
+
+    /**
+     * The path:line locations of the scenarios with the tag, on the scenario or its feature.
+     */
+    private List<String> taggedLocations(final String tag) {
+        final FeatureFileParser parser = new FeatureFileParser(features.getPath());
+        final List<String> locations = new ArrayList<String>();
+        for (int i = 0; new File(features, corpus.path(i)).isFile(); i++) {
+            final FeatureSummary feature = parser.parse(new File(features, corpus.path(i)));
+            for (final ScenarioSummary scenario : feature.getScenarios()) {
+                if (feature.getTags().contains(tag) || scenario.getTags().contains(tag)) {
+                    locations.add(feature.getFeaturePath() + ":" + scenario.getLine());
+                }
+            }
+        }
+        Collections.sort(locations);
+        return locations;
+    }
+
+    private void age(final Iterable<String> runners) {
+        for (final String runner : runners) {
+            assertTrue(runnerFile(runner).setLastModified(OLD));
+        }
+    }
+
+    private File runnerFile(final String runner) {
+        return new File(output, runner + ".java");
+    }
+}
@@ -0,0 +1,96 @@
+package com.testvagrant.gradle.generate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedFingerprintsAreLoadedBack() throws IOException {
+        final GenerationManifest manifest = new GenerationManifest();
+        manifest.add(runner("Parallel01IT", "@smoke", location(3)), "abc");
+        manifest.add(runner("Parallel02IT", "", location(9), location(15)), "def");
+        final File file = new File(folder.getRoot(), GenerationManifest.FILE_NAME);
+
+        manifest.save(file);
+        final GenerationManifest loaded = GenerationManifest.load(file);
+
+        assertEquals("abc", loaded.getFingerprint("Parallel01IT"));
+        assertEquals("def", loaded.getFingerprint("Parallel02IT"));
+        assertEquals(Arrays.asList("Parallel01IT", "Parallel02IT"),
+                Arrays.asList(loaded.getOutputFileNames().toArray()));
+    }
+
+    @Test
+    public void unknownRunnersHaveNoFingerprint() {
+        assertNull(new GenerationManifest().getFingerprint("Parallel01IT"));
+    }
+
+    @Test
+    public void missingManifestIsEmpty() {
+        final GenerationManifest manifest =
+                GenerationManifest.load(new File(folder.getRoot(), "missing"));
+
+        assertTrue(manifest.getOutputFileNames().isEmpty());
+    }
+
+    @Test
+    public void manifestOfAnotherVersionIsIgnored() throws IOException {
+        final File file = new File(folder.getRoot(), GenerationManifest.FILE_NAME);
+        Files.write(file.toPath(), ("# cuke-parallel generation manifest v0\n"
+                + "Parallel01IT\tabc\t\tx\n").getBytes(Charset.forName("UTF-8")));
+
+        assertNull(GenerationManifest.load(file).getFingerprint("Parallel01IT"));
+    }
+
+    @Test
+    public void fingerprintDependsOnEveryValueAndItsPosition() {
+        final String fingerprint = GenerationManifest.fingerprint("settings", "key", 1);
+
+        assertEquals(fingerprint, GenerationManifest.fingerprint("settings", "key", 1));
+        assertNotEquals(fingerprint, GenerationManifest.fingerprint("settings", "key", 2));
+        assertNotEquals(fingerprint, GenerationManifest.fingerprint("key", "settings", 1));
+        // values are separated, so moving characters between them changes the fingerprint
+        assertNotEquals(GenerationManifest.fingerprint("ab", "c"),
+                GenerationManifest.fingerprint("a", "bc"));
+    }
+
+    @Test
+    public void runnerKeyIgnoresLineNumbersButNotScenarios() {
+        final ScenarioLocation moved = new ScenarioLocation("login.feature",
+                "features/login.feature:12", "features/login.feature:valid login", 3);
+
+        assertEquals(RunnerDefinition.key("@smoke", Collections.singletonList(location(3))),
+                RunnerDefinition.key("@smoke", Collections.singletonList(moved)));
+        assertNotEquals(RunnerDefinition.key("@smoke", Collections.singletonList(location(3))),
+                RunnerDefinition.key("@regression", Collections.singletonList(location(3))));
+        assertNotEquals(RunnerDefinition.key("@smoke", Collections.singletonList(location(3))),
+                RunnerDefinition.key("@smoke", Collections.singletonList(location(9))));
+    }
+
+    private static RunnerDefinition runner(final String name, final String tag,
+                                           final ScenarioLocation... locations) {
+        return new RunnerDefinition(name, tag, Arrays.asList(locations), 1);
+    }
+
+    private static ScenarioLocation location(final int line) {
+        return new ScenarioLocation("login.feature", "features/login.feature:" + line,
+                "features/login.feature:" + (line == 3 ? "valid login" : "scenario " + line), 3);
+    }
+}
@@ -0,0 +1,84 @@
+package com.testvagrant.gradle.generate;
+
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import com.testvagrant.gradle.generate.index.FeatureSummary;
+import com.testvagrant.gradle.generate.index.ScenarioSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationMetricsTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void summaryCountsWhatTheRunProduced() {
+        final GenerationMetrics metrics = new GenerationMetrics();
+        metrics.countIndex(index());
+        metrics.countRunners(5, 2);
+        metrics.addBytesWritten(300);
+        metrics.finish();
+
+        assertTrue(metrics.summary(), metrics.summary().startsWith(
+                "Generated 2 of 5 runners from 2 feature files (3 scenarios, 2 example rows,"
+                        + " 300 bytes) in "));
+        assertTrue(metrics.summary(), metrics.summary().contains(" parsing 0 ms"));
+    }
+
+    @Test
+    public void phaseRunOnSeveralThreadsIsRecordedOncePerThread() throws Exception {
+        final GenerationMetrics metrics = new GenerationMetrics();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    metrics.end(GenerationMetrics.PARSING, metrics.start());
+                }
+            }));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        metrics.finish();
+        final File report = new File(folder.getRoot(), "reports/generation.json");
+
+        metrics.write(report);
+
+        final String json = new String(Files.readAllBytes(report.toPath()), UTF_8);
+        assertTrue(json, json.contains("\"parsing\": {"));
+        assertTrue(json, json.replaceAll("\\s", "").contains("\"threads\":3}"));
+        assertEquals(json, 5, json.split("\"threads\"").length - 1);
+    }
+
+    private static FeatureIndex index() {
+        final FeatureIndex index = new FeatureIndex();
+        index.add(new FeatureSummary(null, "a.feature", "a", "a", Collections.<String>emptyList(),
+                Arrays.asList(scenario(3), scenario(9, 14, 15))));
+        index.add(new FeatureSummary(null, "b.feature", "b", "b", Collections.<String>emptyList(),
+                Collections.singletonList(scenario(3))));
+        return index;
+    }
+
+    private static ScenarioSummary scenario(final int line, final Integer... exampleLines) {
+        return new ScenarioSummary(exampleLines.length > 0, "scenario " + line, line,
+                Collections.<String>emptyList(), Arrays.asList(exampleLines), 1);
+    }
+}
@@ -0,0 +1,119 @@
+package com.testvagrant.gradle.generate;
+
+import com.testvagrant.gradle.generate.index.FeatureIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the pipeline with a queue of one, so a stage that stopped without passing on a failure
+ * would leave the others blocked instead of failing the test.
+ */
+public class GenerationPipelineTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void indexKeepsDiscoveryOrder() throws IOException {
+        final File features = folder.newFolder("features");
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            final File file = new File(features, "feature" + i + ".feature");
+            Files.write(file.toPath(), ("Feature: feature " + i + "\n\n  Scenario: scenario\n"
+                    + "    Given a step\n").getBytes(UTF_8));
+            files.add(file);
+        }
+
+        final FeatureIndex index = pipeline(features, 4).index(files);
+
+        assertEquals(20, index.getFeatures().size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(files.get(i), index.getFeatures().get(i).getFile());
+        }
+    }
+
+    @Test
+    public void parserFailureFailsTheIndex() throws IOException {
+        final File features = folder.newFolder("features");
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            files.add(new File(features, "missing" + i + ".feature"));
+        }
+
+        try {
+            pipeline(features, 2).index(files);
+            fail("missing feature files were indexed");
+        } catch (final RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("missing"));
+        }
+    }
+
+    @Test
+    public void rendererFailureFailsTheWrite() throws IOException {
+        final File output = folder.newFolder("runners");
+        final IllegalStateException failure = new IllegalStateException("cannot render");
+
+        try {
+            pipeline(output, 2).write(runners(50), new GenerationPipeline.RunnerRenderer() {
+                public String render(final RunnerDefinition runner) {
+                    if (runner.getCounter() == 25) {
+                        throw failure;
+                    }
+                    return "class " + runner.getClassName() + " {}";
+                }
+            }, output);
+            fail("the failed runner was written");
+        } catch (final IllegalStateException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void writerFailureFailsTheWrite() throws IOException {
+        final File output = new File(folder.getRoot(), "missing/runners");
+
+        try {
+            pipeline(folder.getRoot(), 2).write(runners(50),
+                    new GenerationPipeline.RunnerRenderer() {
+                        public String render(final RunnerDefinition runner) {
+                            return "class " + runner.getClassName() + " {}";
+                        }
+                    }, output);
+            fail("runners were written into a missing directory");
+        } catch (final RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Error creating file"));
+        }
+    }
+
+    private static GenerationPipeline pipeline(final File featuresDirectory, final int threads) {
+        return new GenerationPipeline(featuresDirectory.getPath(), UTF_8, null,
+                threads, threads, threads, 1, new GenerationMetrics());
+    }
+
+    private static List<RunnerDefinition> runners(final int count) {
+        final List<RunnerDefinition> runners = new ArrayList<RunnerDefinition>();
+        for (int i = 1; i <= count; i++) {
+            runners.add(new RunnerDefinition("Parallel" + i + "IT", "@tag",
+                    Collections.singletonList(new ScenarioLocation("a.feature",
+                            "features/a.feature:" + i, "features/a.feature:scenario " + i, 1)),
+                    i));
+        }
+        return runners;
+    }
+}
@@ -0,0 +1,118 @@
+package com.testvagrant.gradle.generate.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureSummaryCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedSummariesAreLoadedBack() throws IOException {
+        final File cacheFile = new File(folder.getRoot(), "cache/feature-summaries.bin");
+        final FeatureSummaryCache cache = new FeatureSummaryCache(cacheFile);
+        cache.put(new FeatureSummary(null, null, "hash", null, Arrays.asList("@feature"),
+                Arrays.asList(new ScenarioSummary(false, "login", 5,
+                                Collections.<String>emptyList(),
+                                Collections.<Integer>emptyList(), 3),
+                        new ScenarioSummary(true, "login as <user>", 9,
+                                Arrays.asList("@smoke"), Arrays.asList(14, 15), 2))));
+        cache.save();
+
+        final FeatureSummaryCache loaded = new FeatureSummaryCache(cacheFile);
+        loaded.load();
+        final FeatureSummary summary = loaded.get("hash");
+
+        assertNull(summary.getName());
+        assertEquals(Arrays.asList("@feature"), summary.getTags());
+        assertEquals(2, summary.getScenarios().size());
+        final ScenarioSummary scenario = summary.getScenarios().get(0);
+        assertFalse(scenario.isOutline());
+        assertEquals("login", scenario.getName());
+        assertEquals(5, scenario.getLine());
+        assertEquals(3, scenario.getStepCount());
+        final ScenarioSummary outline = summary.getScenarios().get(1);
+        assertTrue(outline.isOutline());
+        assertEquals(Arrays.asList("@smoke"), outline.getTags());
+        assertEquals(Arrays.asList(14, 15), outline.getExampleLines());
+    }
+
+    @Test
+    public void onlyUsedSummariesAreSavedBack() throws IOException {
+        final File cacheFile = new File(folder.getRoot(), "feature-summaries.bin");
+        final FeatureSummaryCache cache = new FeatureSummaryCache(cacheFile);
+        cache.put(summary("used"));
+        cache.put(summary("deleted"));
+        cache.save();
+
+        final FeatureSummaryCache next = new FeatureSummaryCache(cacheFile);
+        next.load();
+        assertNotNull(next.get("used"));
+        next.save();
+
+        final FeatureSummaryCache last = new FeatureSummaryCache(cacheFile);
+        last.load();
+        assertNotNull(last.get("used"));
+        assertNull(last.get("deleted"));
+    }
+
+    @Test
+    public void unreadableCacheIsEmpty() throws IOException {
+        final File cacheFile = folder.newFile("feature-summaries.bin");
+        Files.write(cacheFile.toPath(), "not a cache".getBytes(UTF_8));
+
+        final FeatureSummaryCache cache = new FeatureSummaryCache(cacheFile);
+        cache.load();
+
+        assertNull(cache.get("hash"));
+    }
+
+    @Test
+    public void cachedSummaryOfAFeatureFileMatchesTheParsedOne() throws IOException {
+        final File features = folder.newFolder("features");
+        final File feature = new File(features, "login.feature");
+        Files.write(feature.toPath(), ("@auth\nFeature: Login\n\n  Background:\n"
+                + "    Given a user\n\n  Scenario: valid login\n    When the user logs in\n"
+                + "    Then the user is logged in\n").getBytes(UTF_8));
+        final File cacheFile = new File(folder.getRoot(), "feature-summaries.bin");
+        final FeatureSummaryCache cache = new FeatureSummaryCache(cacheFile);
+        final FeatureSummary parsed =
+                new FeatureFileParser(features.getPath(), cache).parse(feature);
+        cache.save();
+
+        final FeatureSummaryCache loaded = new FeatureSummaryCache(cacheFile);
+        loaded.load();
+        final FeatureSummary cached =
+                new FeatureFileParser(features.getPath(), loaded).parse(feature);
+
+        assertNotNull(loaded.get(parsed.getContentHash()));
+        assertEquals(feature, cached.getFile());
+        assertEquals(parsed.getFeaturePath(), cached.getFeaturePath());
+        assertEquals("Login", cached.getName());
+        assertEquals(Arrays.asList("@auth"), cached.getTags());
+        assertEquals(7, cached.getScenarios().get(0).getLine());
+        assertEquals(3, cached.getScenarios().get(0).getStepCount());
+    }
+
+    private static FeatureSummary summary(final String contentHash) {
+        return new FeatureSummary(null, null, contentHash, "feature",
+                Collections.<String>emptyList(), Collections.<ScenarioSummary>emptyList());
+    }
+}
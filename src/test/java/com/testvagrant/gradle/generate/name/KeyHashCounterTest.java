@@ -0,0 +1,48 @@
+package com.testvagrant.gradle.generate.name;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyHashCounterTest {
+
+    @Test
+    public void numberDependsOnlyOnTheKey() {
+        final int number = new KeyHashCounter().next("@smoke\nfeatures/login.feature:valid login");
+
+        final KeyHashCounter counter = new KeyHashCounter();
+        counter.next("@smoke\nfeatures/cart.feature:checkout");
+        assertEquals(number, counter.next("@smoke\nfeatures/login.feature:valid login"));
+    }
+
+    @Test
+    public void numbersHaveAtMostEightDigits() {
+        final KeyHashCounter counter = new KeyHashCounter();
+        for (int i = 0; i < 1000; i++) {
+            final int number = counter.next("key " + i);
+            assertTrue(number >= 0 && number < 100000000);
+        }
+    }
+
+    @Test
+    public void takenNumberGoesToTheNextFreeOne() {
+        final KeyHashCounter counter = new KeyHashCounter();
+        final int first = counter.next("same key");
+
+        assertEquals(first + 1, counter.next("same key"));
+    }
+
+    @Test
+    public void numbersAreNeverHandedOutTwice() {
+        final KeyHashCounter counter = new KeyHashCounter();
+        final Set<Integer> numbers = new HashSet<Integer>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(numbers.add(counter.next()));
+            assertTrue(numbers.add(counter.next(String.valueOf(i))));
+        }
+    }
+}
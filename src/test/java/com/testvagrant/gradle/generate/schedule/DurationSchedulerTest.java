@@ -0,0 +1,141 @@
+package com.testvagrant.gradle.generate.schedule;
+
+import com.testvagrant.gradle.generate.ScenarioLocation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DurationSchedulerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DurationScheduler stepsOnly = new DurationScheduler(new DurationHistory());
+
+    @Test
+    public void estimatesFromStepCountWithoutHistory() {
+        assertEquals(3, stepsOnly.estimate(location("a.feature", 3, 3)), 0);
+        // a scenario without steps still takes some time
+        assertEquals(1, stepsOnly.estimate(location("a.feature", 7, 0)), 0);
+    }
+
+    @Test
+    public void estimatesFromRecordedDurationsIncludingBackgrounds() throws IOException {
+        final File reports = folder.newFolder("reports");
+        Files.write(new File(reports, "cucumber.json").toPath(), ("[{"
+                + "\"uri\": \"features/a.feature\", \"elements\": ["
+                + background(100)
+                + "{\"type\": \"scenario\", \"line\": 3, \"steps\": [" + step(200) + ","
+                + step(300) + "]},"
+                + background(100)
+                + "{\"type\": \"scenario\", \"line\": 7, \"steps\": [" + step(1000) + "]}"
+                + "]}]").getBytes(UTF_8));
+        final DurationScheduler scheduler =
+                new DurationScheduler(DurationHistory.load(reports));
+
+        assertEquals(600, scheduler.estimate(location("features/a.feature", 3, 2)), 0);
+        assertEquals(1100, scheduler.estimate(location("features/a.feature", 7, 1)), 0);
+        // 1700ns over 5 steps, backgrounds included
+        assertEquals(680, scheduler.estimate(location("features/b.feature", 3, 2)), 0);
+    }
+
+    @Test
+    public void unreadableReportsGiveNoHistory() throws IOException {
+        final File reports = folder.newFolder("reports");
+        Files.write(new File(reports, "cut-short.json").toPath(),
+                "[{\"uri\": \"features/a.feature\", \"elements\": [{\"li".getBytes(UTF_8));
+
+        final DurationScheduler scheduler =
+                new DurationScheduler(DurationHistory.load(reports));
+
+        assertEquals(2, scheduler.estimate(location("features/a.feature", 3, 2)), 0);
+    }
+
+    @Test
+    public void assignsLongestFirstToTheLightestBin() {
+        final List<ScenarioLocation> locations = Arrays.asList(location("a.feature", 3, 5),
+                location("a.feature", 9, 4), location("a.feature", 15, 3),
+                location("a.feature", 21, 3), location("a.feature", 27, 1));
+
+        assertArrayEquals(new int[]{0, 1, 1, 0, 1}, stepsOnly.assign(locations, 2));
+    }
+
+    @Test
+    public void assignsEqualEstimatesInFeatureFileOrder() {
+        final List<ScenarioLocation> locations = Arrays.asList(location("a.feature", 3, 2),
+                location("a.feature", 9, 2), location("a.feature", 15, 2));
+
+        assertArrayEquals(new int[]{0, 1, 2}, stepsOnly.assign(locations, 3));
+    }
+
+    @Test
+    public void packKeepsTheOrderOfLocationsWithinARunner() {
+        final ScenarioLocation first = location("a.feature", 3, 1);
+        final ScenarioLocation second = location("a.feature", 9, 4);
+        final ScenarioLocation third = location("a.feature", 15, 2);
+
+        final List<List<ScenarioLocation>> runners =
+                stepsOnly.pack(Arrays.asList(first, second, third), 2);
+
+        assertEquals(2, runners.size());
+        assertEquals(Collections.singletonList(second), runners.get(0));
+        assertEquals(Arrays.asList(first, third), runners.get(1));
+    }
+
+    @Test
+    public void packNeverGivesMoreRunnersThanLocations() {
+        final List<ScenarioLocation> locations =
+                Arrays.asList(location("a.feature", 3, 1), location("a.feature", 9, 1));
+
+        assertEquals(2, stepsOnly.pack(locations, 5).size());
+        assertEquals(1, stepsOnly.pack(locations, 0).size());
+    }
+
+    @Test
+    public void sharesRunnersByExpectedDuration() {
+        final List<List<ScenarioLocation>> groups = new ArrayList<List<ScenarioLocation>>();
+        groups.add(Arrays.asList(location("a.feature", 3, 3), location("a.feature", 9, 3),
+                location("a.feature", 15, 3)));
+        groups.add(Arrays.asList(location("b.feature", 3, 1), location("b.feature", 9, 2)));
+
+        assertArrayEquals(new int[]{3, 1}, stepsOnly.shareRunners(groups, 4));
+    }
+
+    @Test
+    public void sharesAtLeastOneAndAtMostTheLocationsOfAGroup() {
+        final List<List<ScenarioLocation>> groups = new ArrayList<List<ScenarioLocation>>();
+        groups.add(Collections.singletonList(location("a.feature", 3, 100)));
+        groups.add(Collections.singletonList(location("b.feature", 3, 1)));
+        groups.add(Collections.<ScenarioLocation>emptyList());
+
+        assertArrayEquals(new int[]{1, 1, 0}, stepsOnly.shareRunners(groups, 10));
+    }
+
+    private static ScenarioLocation location(final String path, final int line,
+                                             final int stepCount) {
+        return new ScenarioLocation(path.substring(path.lastIndexOf('/') + 1), path + ":" + line,
+                path + ":scenario " + line, stepCount);
+    }
+
+    private static String background(final long nanos) {
+        return "{\"type\": \"background\", \"line\": 1, \"steps\": [" + step(nanos) + "]},";
+    }
+
+    private static String step(final long nanos) {
+        return "{\"result\": {\"status\": \"passed\", \"duration\": " + nanos + "}}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.testvagrant.gradle.generate.schedule;
+
+import com.testvagrant.gradle.generate.ScenarioLocation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardSelectorTest {
+
+    @Test
+    public void twoShardsCoverEveryLocationExactlyOnce() {
+        final List<ScenarioLocation> locations = locations(200);
+
+        final Set<ScenarioLocation> first = new ShardSelector(0, 2).select(locations, null);
+        final Set<ScenarioLocation> second = new ShardSelector(1, 2).select(locations, null);
+
+        assertCoveredOnce(locations, first, second);
+        assertFalse(first.isEmpty());
+        assertFalse(second.isEmpty());
+    }
+
+    @Test
+    public void balancedShardsCoverEveryLocationExactlyOnce() {
+        final List<ScenarioLocation> locations = locations(200);
+        final DurationScheduler scheduler = new DurationScheduler(new DurationHistory());
+
+        final Set<ScenarioLocation> first = new ShardSelector(0, 2).select(locations, scheduler);
+        final Set<ScenarioLocation> second = new ShardSelector(1, 2).select(locations, scheduler);
+
+        assertCoveredOnce(locations, first, second);
+    }
+
+    @Test
+    public void duplicateLocationsAreSelectedOnce() {
+        final List<ScenarioLocation> locations = locations(20);
+        locations.addAll(locations(20));
+
+        final Set<ScenarioLocation> first = new ShardSelector(0, 2).select(locations, null);
+        final Set<ScenarioLocation> second = new ShardSelector(1, 2).select(locations, null);
+
+        assertEquals(20, first.size() + second.size());
+    }
+
+    @Test
+    public void shardOfDependsOnlyOnIdentityAndShardCount() {
+        // pinned, so that nodes running different versions of the plugin still agree
+        assertEquals(0, ShardSelector.shardOf("features/login.feature:valid login", 2));
+        assertEquals(1, ShardSelector.shardOf("features/login.feature:invalid login", 2));
+        assertEquals(ShardSelector.shardOf("features/cart.feature:checkout", 7),
+                ShardSelector.shardOf("features/cart.feature:checkout", 7));
+    }
+
+    @Test
+    public void addingAScenarioMovesNoOtherScenario() {
+        final List<ScenarioLocation> locations = locations(100);
+        final Set<ScenarioLocation> before = new ShardSelector(1, 3).select(locations, null);
+
+        final ScenarioLocation added = location(1000);
+        locations.add(0, added);
+        final Set<ScenarioLocation> after = new ShardSelector(1, 3).select(locations, null);
+
+        after.remove(added);
+        assertEquals(before, after);
+    }
+
+    @Test
+    public void addingAShardOnlyMovesScenariosToTheNewShard() {
+        final List<ScenarioLocation> locations = locations(300);
+        for (final ScenarioLocation location : locations) {
+            final int before = ShardSelector.shardOf(location.getIdentity(), 3);
+            final int after = ShardSelector.shardOf(location.getIdentity(), 4);
+            assertTrue(after == before || after == 3);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShardIndexOutOfRange() {
+        new ShardSelector(2, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShardCountBelowOne() {
+        new ShardSelector(0, 0);
+    }
+
+    private static void assertCoveredOnce(final List<ScenarioLocation> locations,
+                                          final Set<ScenarioLocation> first,
+                                          final Set<ScenarioLocation> second) {
+        final Set<ScenarioLocation> both = new HashSet<ScenarioLocation>(first);
+        both.retainAll(second);
+        assertTrue("in both shards: " + both, both.isEmpty());
+        final Set<ScenarioLocation> all = new HashSet<ScenarioLocation>(first);
+        all.addAll(second);
+        assertEquals(new HashSet<ScenarioLocation>(locations), all);
+    }
+
+    private static List<ScenarioLocation> locations(final int count) {
+        final List<ScenarioLocation> locations = new ArrayList<ScenarioLocation>();
+        for (int i = 0; i < count; i++) {
+            locations.add(location(i));
+        }
+        return locations;
+    }
+
+    private static ScenarioLocation location(final int i) {
+        final String path = "features/feature" + (i / 10) + ".feature";
+        return new ScenarioLocation("feature" + (i / 10) + ".feature",
+                path + ":" + (3 + 4 * (i % 10)), path + ":scenario " + i, 1 + i % 7);
+    }
+}
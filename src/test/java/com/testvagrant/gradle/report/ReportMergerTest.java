@@ -0,0 +1,168 @@
+package com.testvagrant.gradle.report;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportMergerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsTheLastAttemptOfEveryScenario() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                scenario("login;valid", 3, "failed"), scenario("login;invalid", 9, "passed")));
+        final File retry = report("cucumber1-1.json", feature("features/login.feature",
+                scenario("login;valid", 3, "passed")));
+
+        final String merged = merge(2, first, retry);
+
+        assertEquals(2, count(merged, "\"status\":\"passed\""));
+        assertFalse(merged.contains("\"status\":\"failed\""));
+        assertEquals(2, count(merged, "\"type\":\"scenario\""));
+    }
+
+    @Test
+    public void writesEveryFeatureOnceWithTheKeptElementsOfAllItsReports() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                scenario("login;valid", 3, "failed"), scenario("login;invalid", 9, "passed")));
+        final File retry = report("cucumber1-1.json", feature("features/login.feature",
+                scenario("login;valid", 3, "passed")));
+
+        final String merged = merge(2, first, retry);
+
+        assertEquals(1, count(merged, "\"uri\""));
+        assertTrue(merged, merged.startsWith("[" + feature("features/login.feature",
+                scenario("login;invalid", 9, "passed"), scenario("login;valid", 3, "passed"))));
+    }
+
+    @Test
+    public void writesFeaturesInTheOrderTheyFirstOccur() throws IOException {
+        final File first = report("cucumber.json",
+                feature("features/cart.feature", scenario("cart;checkout", 3, "passed")) + ","
+                        + feature("features/login.feature", scenario("login;valid", 3, "passed")));
+        final File second = report("cucumber2.json",
+                feature("features/login.feature", scenario("login;invalid", 9, "passed")) + ","
+                        + feature("features/cart.feature", scenario("cart;empty", 9, "passed")));
+
+        final String merged = merge(4, first, second);
+
+        assertEquals("[" + feature("features/cart.feature", scenario("cart;checkout", 3, "passed"),
+                scenario("cart;empty", 9, "passed")) + ","
+                + feature("features/login.feature", scenario("login;valid", 3, "passed"),
+                scenario("login;invalid", 9, "passed")) + "]", merged);
+    }
+
+    @Test
+    public void keepsTheBackgroundEveryKeptScenarioRanWith() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                background("failed"), scenario("login;valid", 3, "failed"),
+                background("passed"), scenario("login;invalid", 9, "passed")));
+        final File retry = report("cucumber1-1.json", feature("features/login.feature",
+                background("passed"), scenario("login;valid", 3, "passed")));
+
+        final String merged = merge(2, first, retry);
+
+        assertEquals(2, count(merged, "\"type\":\"background\""));
+        assertFalse(merged.contains("\"status\":\"failed\""));
+        // each background is written right before its scenario
+        assertEquals(2, count(merged, "\"type\":\"background\"" + stepsOf("passed")
+                + "},{\"id\""));
+    }
+
+    @Test
+    public void leavesOutFeaturesWithoutRemainingScenarios() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                scenario("login;valid", 3, "failed")));
+        final File retry = report("cucumber1-1.json", feature("features/login.feature",
+                scenario("login;valid", 3, "passed")));
+
+        final String merged = merge(1, first, retry);
+
+        assertEquals(1, count(merged, "\"uri\""));
+    }
+
+    @Test
+    public void usesTheCompleteFeaturesOfAReportThatWasCutShort() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                scenario("login;valid", 3, "failed")));
+        final String cart = feature("features/cart.feature", scenario("cart;checkout", 3,
+                "passed"));
+        final String login = feature("features/login.feature",
+                scenario("login;valid", 3, "passed"));
+        final File cutShort = report("cucumber1-1.json",
+                cart + "," + login.substring(0, login.length() / 2));
+
+        final String merged = merge(2, first, cutShort);
+
+        assertTrue(merged.contains("features/cart.feature"));
+        assertEquals(1, count(merged, "\"status\":\"failed\""));
+    }
+
+    @Test
+    public void skipsFilesThatAreNotReports() throws IOException {
+        final File first = report("cucumber.json", feature("features/login.feature",
+                scenario("login;valid", 3, "passed")));
+        final File other = report("settings.json", "");
+        Files.write(other.toPath(), "{\"name\": \"not a report\"}".getBytes(UTF_8));
+
+        assertEquals(1, count(merge(1, first, other), "\"type\":\"scenario\""));
+    }
+
+    private String merge(final int expectedScenarios, final File... reports)
+            throws IOException {
+        final File output = new File(folder.getRoot(), "merged/cucumber-merged.json");
+        assertEquals(expectedScenarios,
+                new ReportMerger().merge(Arrays.asList(reports), output));
+        return new String(Files.readAllBytes(output.toPath()), UTF_8);
+    }
+
+    private File report(final String name, final String features) throws IOException {
+        final File report = new File(folder.getRoot(), name);
+        Files.write(report.toPath(), ("[" + features + "]").getBytes(UTF_8));
+        return report;
+    }
+
+    private static String feature(final String uri, final String... elements) {
+        final StringBuilder feature = new StringBuilder("{\"uri\":\"" + uri
+                + "\",\"keyword\":\"Feature\",\"elements\":[");
+        for (int i = 0; i < elements.length; i++) {
+            feature.append(i > 0 ? "," : "").append(elements[i]);
+        }
+        return feature.append("]}").toString();
+    }
+
+    private static String background(final String status) {
+        return "{\"type\":\"background\"" + stepsOf(status) + "}";
+    }
+
+    private static String scenario(final String id, final int line, final String status) {
+        return "{\"id\":\"" + id + "\",\"line\":" + line + ",\"type\":\"scenario\""
+                + stepsOf(status) + "}";
+    }
+
+    private static String stepsOf(final String status) {
+        return ",\"steps\":[{\"result\":{\"status\":\"" + status + "\",\"duration\":1000}}]";
+    }
+
+    private static int count(final String text, final String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,32 @@
+package gherkin;
+
+import gherkin.ast.Location;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class GherkinDialectProviderTest {
+
+    @Test
+    public void dialectsAreSharedByProviders() {
+        assertSame(new GherkinDialectProvider().getDialect("fr", null),
+            new GherkinDialectProvider("fr").getDefaultDialect());
+    }
+
+    @Test(expected = ParserException.NoSuchLanguageException.class)
+    public void unknownLanguageIsRejected() {
+        new GherkinDialectProvider().getDialect("xx-unknown", new Location(1, 1));
+    }
+
+    @Test
+    public void missingLanguageIsRejectedLikeAnUnknownOne() {
+        try {
+            new GherkinDialectProvider().getDialect(null, new Location(2, 3));
+            fail("no exception for a missing language");
+        } catch (ParserException.NoSuchLanguageException e) {
+            assertEquals("(2:3): Language not supported: null", e.getMessage());
+        }
+    }
+}
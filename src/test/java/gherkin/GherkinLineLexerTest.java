@@ -0,0 +1,87 @@
+package gherkin;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class GherkinLineLexerTest {
+
+    @Test
+    public void tagsAreSplitOnWhitespaceWithOneBasedColumns() {
+        assertEquals(Arrays.asList(span(3, "@a"), span(6, "@b"), span(10, "@c")),
+            tags("  @a @b \t@c "));
+    }
+
+    @Test
+    public void tagColumnsAreRelativeToTheLine() {
+        String text = "Feature: x\n  @smoke @slow\n";
+        int lineStart = text.indexOf('\n') + 1;
+
+        assertEquals(Arrays.asList(span(3, "@smoke"), span(10, "@slow")),
+            GherkinLineLexer.tags(text, lineStart, lineStart + 2, text.length() - 1));
+    }
+
+    @Test
+    public void cellsAreTrimmedWithTheColumnOfTheirContent() {
+        assertEquals(Arrays.asList(span(5, "a"), span(9, "bc"), span(13, "")),
+            cells("  | a | bc |  |"));
+    }
+
+    @Test
+    public void textAfterTheLastPipeIsNotACell() {
+        assertEquals(Collections.singletonList(span(3, "a")), cells("| a | b"));
+    }
+
+    @Test
+    public void escapedPipesBackslashesAndNewlinesAreUnescaped() {
+        assertEquals(Arrays.asList(span(3, "a|b"), span(10, "c\\d"), span(17, "e\nf"),
+            span(24, "g\\xh")),
+            cells("| a\\|b | c\\\\d | e\\nf | g\\xh |"));
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void backslashAtTheEndOfARowIsAnError() {
+        cells("| a |\\");
+    }
+
+    @Test
+    public void bufferedLinesLexLikeSingleLines() {
+        List<String> lines = Arrays.asList("  @a @b", "\t@x\t@y  ", "| a | b |",
+            "    |  a\\|b  | \\n |   |", "  | é | ü\\\\ |", "|");
+        StringBuilder buffer = new StringBuilder("Feature: buffered\n");
+        for (String line : lines) {
+            int start = buffer.length();
+            buffer.append(line);
+            BufferedGherkinLine buffered =
+                new BufferedGherkinLine(buffer.toString(), start, buffer.length());
+            GherkinLine single = new GherkinLine(line);
+            assertEquals(line, single.getTags(), buffered.getTags());
+            assertEquals(line, single.getTableCells(), buffered.getTableCells());
+            buffer.append('\n');
+        }
+    }
+
+    private static List<GherkinLineSpan> tags(String line) {
+        return GherkinLineLexer.tags(line, 0, indent(line), line.length());
+    }
+
+    private static List<GherkinLineSpan> cells(String line) {
+        return GherkinLineLexer.tableCells(line, 0, indent(line), line.length());
+    }
+
+    private static int indent(String line) {
+        int indent = 0;
+        while (indent < line.length() && Character.isWhitespace(line.charAt(indent))) {
+            indent++;
+        }
+        return indent;
+    }
+
+    private static GherkinLineSpan span(int column, String text) {
+        return new GherkinLineSpan(column, text);
+    }
+}